@@ -0,0 +1,121 @@
+package file.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simulator.SyntheticFollowerGraph;
+
+/**
+ * Times writing and reading a follower file in the text and binary formats. The file holds the followers of the most
+ * popular Twitter ID of a synthetic power law graph, the largest list of the graph.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileWriterBenchmark {
+
+	@Param({ "10000", "1000000", "10000000" })
+	public long numberOfEdges;
+
+	private File followersFolder;
+	private String textFile;
+	private String binaryFile;
+	private String writtenFile;
+	private TwitterIdBuffer followerIds;
+	private List<Long> followerIdList;
+	private TwitterIdFileReader twitterIdFileReader;
+	private TwitterIdBuffer readTwitterIds;
+
+	@Setup(Level.Trial)
+	public void createFollowerFiles() throws IOException {
+
+		this.followerIds = new TwitterIdBuffer();
+		new SyntheticFollowerGraph(this.numberOfEdges, SyntheticFollowerGraph.DEFAULT_RANDOM_SEED).getFollowers(0, this.followerIds);
+		this.followerIdList = new ArrayList<Long>(this.followerIds.size());
+		for (int followerIndex = 0; followerIndex < this.followerIds.size(); ++followerIndex) {
+			this.followerIdList.add(this.followerIds.get(followerIndex));
+		}
+
+		this.followersFolder = Files.createTempDirectory("followers").toFile();
+		this.textFile = new File(this.followersFolder, "followers.txt").getPath();
+		this.binaryFile = new File(this.followersFolder, "followers" + BinaryTwitterIdFormat.FILE_EXTENSION).getPath();
+		this.writtenFile = new File(this.followersFolder, "written").getPath();
+		FileWriter fileWriter = new FileWriter();
+		fileWriter.saveTwitterIdsText(this.textFile, this.followerIds);
+		fileWriter.saveTwitterIds(this.binaryFile, this.followerIds);
+
+		this.twitterIdFileReader = new TwitterIdFileReader();
+		this.readTwitterIds = new TwitterIdBuffer(this.followerIds.size());
+
+	}
+
+	@TearDown(Level.Trial)
+	public void removeFollowerFiles() {
+
+		File[] folderContents = this.followersFolder.listFiles();
+		if (folderContents != null) {
+			for (File file : folderContents) {
+				file.delete();
+			}
+		}
+		this.followersFolder.delete();
+
+	}
+
+	@Benchmark
+	public void saveTwitterIdsList() throws IOException {
+		new FileWriter().saveTwitterIdsList(this.writtenFile, this.followerIdList);
+	}
+
+	@Benchmark
+	public void saveTwitterIdsText() throws IOException {
+		new FileWriter().saveTwitterIdsText(this.writtenFile, this.followerIds);
+	}
+
+	@Benchmark
+	public void saveTwitterIds() throws IOException {
+		new FileWriter().saveTwitterIds(this.writtenFile, this.followerIds);
+	}
+
+	@Benchmark
+	public List<String> getFileContents() throws IOException {
+		return new FileWriter().getFileContents(this.textFile);
+	}
+
+	@Benchmark
+	public int readTwitterIdsText() throws IOException {
+		this.readTwitterIds.clear();
+		this.twitterIdFileReader.readTwitterIds(this.textFile, this.readTwitterIds);
+		return this.readTwitterIds.size();
+	}
+
+	@Benchmark
+	public int readTwitterIdsBinary() throws IOException {
+		this.readTwitterIds.clear();
+		this.twitterIdFileReader.readTwitterIds(this.binaryFile, this.readTwitterIds);
+		return this.readTwitterIds.size();
+	}
+
+}
@@ -0,0 +1,156 @@
+package pagerank;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import file.io.FollowerStorage;
+import file.io.TwitterIdBuffer;
+import simulator.SyntheticFollowerGraph;
+
+/**
+ * Times the stages of building the follower graph and ranking it on a synthetic power law graph. The graph is written
+ * to a storage in a temporary folder once per trial, so reading it back is timed with the segments in the page cache.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx6g" })
+public class FollowerGraphBenchmark {
+
+	public static final double TELEPORTATION_RATE = 0.14;
+
+	@Param({ "10000", "1000000", "10000000" })
+	public long numberOfEdges;
+
+	@Param({ "1" })
+	public int threadCount;
+
+	private File followersFolder;
+	private FollowerStorage followerStorage;
+	//Twitter IDs in the order the graph loader meets them, each list owner followed by its followers
+	private long[] followerListTwitterIds;
+	private ParallelRangeExecutor parallelRangeExecutor;
+	private TransitionProbabilityMatrix transitionProbabilityMatrix;
+	private double[] probabilityVector;
+
+	@Setup(Level.Trial)
+	public void createGraph() throws IOException {
+
+		SyntheticFollowerGraph syntheticFollowerGraph = new SyntheticFollowerGraph(this.numberOfEdges, SyntheticFollowerGraph.DEFAULT_RANDOM_SEED);
+		this.followersFolder = Files.createTempDirectory("followers").toFile();
+		FollowerStorage newFollowerStorage = new FollowerStorage(this.followersFolder.getPath());
+		try {
+			syntheticFollowerGraph.save(newFollowerStorage);
+		} finally {
+			newFollowerStorage.close();
+		}
+		this.followerStorage = new FollowerStorage(this.followersFolder.getPath());
+
+		TwitterIdBuffer twitterIds = new TwitterIdBuffer((int) (syntheticFollowerGraph.getNumberOfEdges() + syntheticFollowerGraph.getNumberOfLists()));
+		for (int listRank = 0; listRank < syntheticFollowerGraph.getNumberOfLists(); ++listRank) {
+			twitterIds.add(syntheticFollowerGraph.getTwitterId(listRank));
+			syntheticFollowerGraph.getFollowers(listRank, twitterIds);
+		}
+		this.followerListTwitterIds = twitterIds.toArray();
+
+		this.parallelRangeExecutor = new ParallelRangeExecutor(this.threadCount);
+		FollowerGraphLoader followerGraphLoader = new FollowerGraphLoader(this.parallelRangeExecutor);
+		followerGraphLoader.loadFollowerLists(this.followerStorage);
+		this.transitionProbabilityMatrix = new TransitionProbabilityMatrix(followerGraphLoader.getTwitterIds(), followerGraphLoader.createMatrix(), TELEPORTATION_RATE, this.parallelRangeExecutor, new RandomWalkSettings());
+		this.transitionProbabilityMatrix.normalizeTransitionProbabilityMatrixRows();
+		this.probabilityVector = new double[this.transitionProbabilityMatrix.getNumberOfTwittersIdsInFollowerGraph()];
+		Arrays.fill(this.probabilityVector, 1.0 / this.probabilityVector.length);
+
+	}
+
+	@TearDown(Level.Trial)
+	public void removeGraph() {
+
+		this.parallelRangeExecutor.shutdown();
+		File[] folderContents = this.followersFolder.listFiles();
+		if (folderContents != null) {
+			for (File file : folderContents) {
+				file.delete();
+			}
+		}
+		this.followersFolder.delete();
+
+	}
+
+	/**
+	 * Give every Twitter ID of the graph its matrix index
+	 * @return
+	 */
+	@Benchmark
+	public TwitterIdDictionary buildTwitterIdDictionary() {
+
+		TwitterIdDictionary twitterIds = new TwitterIdDictionary();
+		for (long twitterId : this.followerListTwitterIds) {
+			twitterIds.add(twitterId);
+		}
+		return twitterIds;
+
+	}
+
+	/**
+	 * Read every follower list and collect the follower links
+	 * @return
+	 */
+	@Benchmark
+	public FollowerGraphLoader ingestFollowerLists() {
+
+		FollowerGraphLoader followerGraphLoader = new FollowerGraphLoader(this.parallelRangeExecutor);
+		followerGraphLoader.loadFollowerLists(this.followerStorage);
+		return followerGraphLoader;
+
+	}
+
+	/**
+	 * Read every follower list and compress the follower links into the matrix
+	 * @return
+	 */
+	@Benchmark
+	public CompressedSparseColumnMatrix buildFollowerGraph() {
+
+		FollowerGraphLoader followerGraphLoader = new FollowerGraphLoader(this.parallelRangeExecutor);
+		followerGraphLoader.loadFollowerLists(this.followerStorage);
+		return followerGraphLoader.createMatrix();
+
+	}
+
+	@Benchmark
+	public TransitionProbabilityMatrix normalizeTransitionProbabilityMatrixRows() {
+
+		this.transitionProbabilityMatrix.normalizeTransitionProbabilityMatrixRows();
+		return this.transitionProbabilityMatrix;
+
+	}
+
+	@Benchmark
+	public double[] doOneRandomWalkStep() {
+
+		return this.transitionProbabilityMatrix.doOneRandomWalkStep(this.probabilityVector, null, null);
+
+	}
+
+}
@@ -1,13 +1,123 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import logging.Level;
+import logging.LogWriter;
+import logging.Logger;
+import metrics.MetricsRegistry;
+import metrics.MetricsReporter;
+import pagerank.ParallelRangeExecutor;
+import pagerank.RandomWalkSettings;
+import pagerank.TeleportVector;
 import pagerank.TransitionProbabilityMatrix;
-import twitter4j.TwitterException;
 
 
 public class TestC {
 
-	public static void main(String[] args) throws TwitterException {
-		
-		TransitionProbabilityMatrix transitionProbabilityMatrix = new TransitionProbabilityMatrix("/Users/gopalmenon/Desktop/followers", 0.14, 10);
-		System.out.println("TransitionProbabilityMatrix has elements " + transitionProbabilityMatrix.getNumberOfTwittersIdsInFollowerGraph());
+	public static final String DEFAULT_FOLLOWERS_FOLDER = "/Users/gopalmenon/Desktop/followers";
+	public static final String TOLERANCE_OPTION = "tolerance=";
+	public static final String NORM_OPTION = "norm=";
+	public static final String SOLVER_OPTION = "solver=";
+	public static final String ADAPTIVE_TOLERANCE_OPTION = "adaptive=";
+	public static final String REPORT_INTERVAL_OPTION = "report=";
+	public static final String METRICS_OPTION = "metrics=";
+	public static final String LOG_LEVEL_OPTION = "log=";
+
+	private static final Logger LOGGER = Logger.getLogger(TestC.class);
+
+	public static void main(String[] args) {
+
+		//Options may be given anywhere, the other parameters keep their positions
+		RandomWalkSettings randomWalkSettings = new RandomWalkSettings();
+		String metricsLogFile = null;
+		List<String> parameters = new ArrayList<String>();
+		for (String parameter : args) {
+			String option = parameter.trim();
+			try {
+				if (option.startsWith(TOLERANCE_OPTION)) {
+					randomWalkSettings.setResidualTolerance(Double.parseDouble(option.substring(TOLERANCE_OPTION.length())));
+				} else if (option.startsWith(NORM_OPTION)) {
+					randomWalkSettings.setResidualNorm(RandomWalkSettings.ResidualNorm.valueOf(option.substring(NORM_OPTION.length()).toUpperCase()));
+				} else if (option.startsWith(SOLVER_OPTION)) {
+					randomWalkSettings.setSolver(RandomWalkSettings.Solver.valueOf(option.substring(SOLVER_OPTION.length()).toUpperCase()));
+				} else if (option.startsWith(ADAPTIVE_TOLERANCE_OPTION)) {
+					randomWalkSettings.setAdaptiveTolerance(Double.parseDouble(option.substring(ADAPTIVE_TOLERANCE_OPTION.length())));
+				} else if (option.startsWith(REPORT_INTERVAL_OPTION)) {
+					randomWalkSettings.setReportInterval(Integer.parseInt(option.substring(REPORT_INTERVAL_OPTION.length())));
+				} else if (option.startsWith(METRICS_OPTION)) {
+					metricsLogFile = option.substring(METRICS_OPTION.length());
+				} else if (option.startsWith(LOG_LEVEL_OPTION)) {
+					LogWriter.getInstance().setLevel(Level.valueOf(option.substring(LOG_LEVEL_OPTION.length()).toUpperCase()));
+				} else {
+					parameters.add(parameter);
+				}
+			} catch (IllegalArgumentException e) {
+				LOGGER.error("Could not parse input parameter " + parameter);
+			}
+		}
+		args = parameters.toArray(new String[parameters.size()]);
+
+		MetricsReporter metricsReporter = null;
+		if (metricsLogFile != null) {
+			metricsReporter = new MetricsReporter(MetricsRegistry.getInstance(), metricsLogFile, MetricsReporter.DEFAULT_INTERVAL_SECONDS);
+			try {
+				metricsReporter.start();
+			} catch (IOException e) {
+				LOGGER.error("Could not open metrics log " + metricsLogFile, e);
+				metricsReporter = null;
+			}
+		}
+
+		String followersFolder = DEFAULT_FOLLOWERS_FOLDER;
+		if (args.length > 0 && args[0].trim().length() > 0) {
+			followersFolder = args[0].trim();
+		}
+
+		int threadCount = ParallelRangeExecutor.DEFAULT_THREAD_COUNT;
+		if (args.length > 1 && args[1].trim().length() > 0) {
+			try {
+				threadCount = Integer.parseInt(args[1].trim());
+				LOGGER.info("Random walk with " + threadCount + " threads");
+			} catch (NumberFormatException e) {
+				LOGGER.error("Could not parse input parameter " + args[1]);
+			}
+		}
+
+		String snapshotFile = null;
+		if (args.length > 2 && args[2].trim().length() > 0) {
+			snapshotFile = args[2].trim();
+		}
+
+		String rankFile = null;
+		if (args.length > 3 && args[3].trim().length() > 0) {
+			rankFile = args[3].trim();
+		}
+
+		TransitionProbabilityMatrix transitionProbabilityMatrix = new TransitionProbabilityMatrix(followersFolder, 0.14, 10, threadCount, snapshotFile, rankFile, randomWalkSettings);
+		LOGGER.info("TransitionProbabilityMatrix has elements " + transitionProbabilityMatrix.getNumberOfTwittersIdsInFollowerGraph());
+
+		//Seed files separated by commas are ranked together in one batched walk
+		if (args.length > 4 && args[4].trim().length() > 0) {
+			List<TeleportVector> teleportVectors = new ArrayList<TeleportVector>();
+			try {
+				for (String seedFile : args[4].trim().split(",")) {
+					teleportVectors.add(TeleportVector.load(seedFile.trim(), transitionProbabilityMatrix.getTwitterIds()));
+				}
+				if (teleportVectors.size() == 1) {
+					transitionProbabilityMatrix.getPersonalizedPageRank(teleportVectors.get(0));
+				} else {
+					transitionProbabilityMatrix.getPersonalizedPageRanks(teleportVectors);
+				}
+			} catch (IOException e) {
+				LOGGER.error("Could not read seed file in " + args[4], e);
+			}
+		}
+		transitionProbabilityMatrix.shutdown();
+
+		if (metricsReporter != null) {
+			metricsReporter.stop();
+		}
 
 	}
 
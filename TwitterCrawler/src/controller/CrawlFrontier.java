@@ -0,0 +1,247 @@
+package controller;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import file.io.TwitterIdBuffer;
+import logging.Logger;
+import metrics.Gauge;
+import metrics.MetricsRegistry;
+
+/**
+ * Queue of Twitter IDs waiting to be crawled, shared by all crawl workers. The queue itself is a FrontierLog on disk, so
+ * its length is bounded by the disk rather than the heap. The frontier also counts the entries workers have taken but
+ * not finished, since those can still add followers. The crawl is complete once the queue is empty and no entries are in
+ * progress.
+ *
+ * Every Twitter ID that has been put on the queue, or whose followers were saved by an earlier crawl, is remembered in a
+ * seen set. Each Twitter ID is therefore queued at most once, however many of the crawled accounts it follows.
+ *
+ * The log is checkpointed at the position of the oldest entry not yet finished, so no entry is lost if the crawler stops.
+ *
+ */
+public class CrawlFrontier {
+
+	public static final long CHECKPOINT_INTERVAL_MILLIS = 10 * 1000;
+
+	private static final Logger LOGGER = Logger.getLogger(CrawlFrontier.class);
+	private static final Gauge FRONTIER_SIZE = MetricsRegistry.getInstance().getGauge("crawler.frontierSize");
+	private static final Gauge SEEN_TWITTER_IDS = MetricsRegistry.getInstance().getGauge("crawler.seenTwitterIds");
+
+	private FrontierLog frontierLog;
+	private TwitterIdSet seenTwitterIds;
+	//Entries read again after a restart whose followers were already saved before the crawler stopped
+	private TwitterIdSet crawledBeforeRestart;
+	private long recoveredWritePosition;
+	//Log position of every entry taken and not finished, including those waiting to be retried
+	private Map<RestartQueueEntry, Long> unfinishedEntryPositions;
+	private ArrayDeque<RestartQueueEntry> retryEntries;
+	private long lastCheckpointMillis;
+
+	/**
+	 * Open the frontier on the log. The entries left in the log by an earlier crawl are added to the seen set.
+	 * @param frontierLog
+	 * @param crawledTwitterIds Twitter IDs whose followers have already been saved, which becomes the seen set
+	 * @throws IOException
+	 */
+	public CrawlFrontier(FrontierLog frontierLog, TwitterIdSet crawledTwitterIds) throws IOException {
+
+		this.frontierLog = frontierLog;
+		this.seenTwitterIds = crawledTwitterIds;
+		this.crawledBeforeRestart = new TwitterIdSet();
+		this.recoveredWritePosition = frontierLog.getWritePosition();
+		this.unfinishedEntryPositions = new IdentityHashMap<RestartQueueEntry, Long>();
+		this.retryEntries = new ArrayDeque<RestartQueueEntry>();
+		this.lastCheckpointMillis = System.currentTimeMillis();
+
+		//Find the entries crawled since the last checkpoint before adding the rest to the seen set
+		long resumePosition = frontierLog.getReadPosition();
+		for (RestartQueueEntry restartQueueEntry = frontierLog.read(); restartQueueEntry != null; restartQueueEntry = frontierLog.read()) {
+			if (this.seenTwitterIds.contains(restartQueueEntry.getTwitterId())) {
+				this.crawledBeforeRestart.add(restartQueueEntry.getTwitterId());
+			}
+		}
+		frontierLog.seek(resumePosition);
+		for (RestartQueueEntry restartQueueEntry = frontierLog.read(); restartQueueEntry != null; restartQueueEntry = frontierLog.read()) {
+			this.seenTwitterIds.add(restartQueueEntry.getTwitterId());
+		}
+		frontierLog.seek(resumePosition);
+		updateGauges();
+
+	}
+
+	/**
+	 * Take the next entry to crawl, waiting while the queue is empty but other workers may still add to it
+	 * @return next entry or null if the crawl is complete
+	 * @throws InterruptedException
+	 * @throws IOException if the log cannot be read
+	 */
+	public synchronized RestartQueueEntry take() throws InterruptedException, IOException {
+
+		while (true) {
+			if (!this.retryEntries.isEmpty()) {
+				RestartQueueEntry restartQueueEntry = this.retryEntries.remove();
+				updateGauges();
+				return restartQueueEntry;
+			}
+
+			long position = this.frontierLog.getReadPosition();
+			RestartQueueEntry restartQueueEntry = this.frontierLog.read();
+			if (restartQueueEntry != null) {
+				if (position < this.recoveredWritePosition && this.crawledBeforeRestart.contains(restartQueueEntry.getTwitterId())) {
+					continue;
+				}
+				this.unfinishedEntryPositions.put(restartQueueEntry, Long.valueOf(position));
+				updateGauges();
+				return restartQueueEntry;
+			}
+
+			if (this.unfinishedEntryPositions.isEmpty()) {
+				return null;
+			}
+			wait();
+		}
+
+	}
+
+	/**
+	 * Queue the entry unless its Twitter ID has been seen before
+	 * @param restartQueueEntry
+	 * @return true if the entry was queued
+	 * @throws IOException if the log cannot be written
+	 */
+	public synchronized boolean add(RestartQueueEntry restartQueueEntry) throws IOException {
+		if (!this.seenTwitterIds.add(restartQueueEntry.getTwitterId())) {
+			return false;
+		}
+		this.frontierLog.append(restartQueueEntry.getLevelNumber(), restartQueueEntry.getTwitterId());
+		this.frontierLog.flush();
+		updateGauges();
+		notifyAll();
+		return true;
+	}
+
+	/**
+	 * Queue the entries whose Twitter IDs have not been seen before, flushing the log once for all of them
+	 * @param restartQueueEntries
+	 * @return number of entries queued
+	 * @throws IOException if the log cannot be written
+	 */
+	public synchronized int addAll(Iterable<RestartQueueEntry> restartQueueEntries) throws IOException {
+		int numberQueued = 0;
+		for (RestartQueueEntry restartQueueEntry : restartQueueEntries) {
+			if (this.seenTwitterIds.add(restartQueueEntry.getTwitterId())) {
+				this.frontierLog.append(restartQueueEntry.getLevelNumber(), restartQueueEntry.getTwitterId());
+				++numberQueued;
+			}
+		}
+		this.frontierLog.flush();
+		updateGauges();
+		notifyAll();
+		return numberQueued;
+	}
+
+	/**
+	 * Queue the Twitter IDs that have not been seen before
+	 * @param twitterIds
+	 * @param levelNumber crawl level of the Twitter IDs
+	 * @return number of Twitter IDs queued
+	 * @throws IOException if the log cannot be written
+	 */
+	public synchronized int addAll(TwitterIdBuffer twitterIds, int levelNumber) throws IOException {
+		int numberQueued = 0;
+		for (int twitterIdIndex = 0; twitterIdIndex < twitterIds.size(); ++twitterIdIndex) {
+			if (this.seenTwitterIds.add(twitterIds.get(twitterIdIndex))) {
+				this.frontierLog.append(levelNumber, twitterIds.get(twitterIdIndex));
+				++numberQueued;
+			}
+		}
+		this.frontierLog.flush();
+		updateGauges();
+		notifyAll();
+		return numberQueued;
+	}
+
+	/**
+	 * Mark a taken entry as done
+	 * @param restartQueueEntry
+	 */
+	public synchronized void finished(RestartQueueEntry restartQueueEntry) {
+		this.unfinishedEntryPositions.remove(restartQueueEntry);
+		checkpointIfDue();
+		notifyAll();
+	}
+
+	/**
+	 * Put a taken entry back at the head of the queue so that it is crawled again next. The entry stays unfinished, so the
+	 * checkpoint does not move past it.
+	 * @param restartQueueEntry
+	 */
+	public synchronized void retry(RestartQueueEntry restartQueueEntry) {
+		this.retryEntries.addFirst(restartQueueEntry);
+		checkpointIfDue();
+		updateGauges();
+		notifyAll();
+	}
+
+	/**
+	 * Checkpoint the log and close it once the crawl is over
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		checkpoint();
+		this.frontierLog.close();
+	}
+
+	/**
+	 * @return number of entries waiting to be crawled
+	 */
+	public synchronized long size() {
+		return this.frontierLog.getWritePosition() - this.frontierLog.getReadPosition() + this.retryEntries.size();
+	}
+
+	/**
+	 * @return number of Twitter IDs crawled or queued so far
+	 */
+	public synchronized int getNumberOfSeenTwitterIds() {
+		return this.seenTwitterIds.size();
+	}
+
+	/**
+	 * Publish the queue length and the seen set size to the crawler metrics
+	 */
+	private void updateGauges() {
+		FRONTIER_SIZE.set(size());
+		SEEN_TWITTER_IDS.set(this.seenTwitterIds.size());
+	}
+
+	/**
+	 * Checkpoint at most once every CHECKPOINT_INTERVAL_MILLIS, since each checkpoint syncs the log to disk
+	 */
+	private void checkpointIfDue() {
+		if (System.currentTimeMillis() - this.lastCheckpointMillis >= CHECKPOINT_INTERVAL_MILLIS) {
+			checkpoint();
+		}
+	}
+
+	/**
+	 * Record in the log that every entry before the oldest unfinished one has been dealt with
+	 */
+	private void checkpoint() {
+
+		long consumedPosition = this.frontierLog.getReadPosition();
+		for (Long position : this.unfinishedEntryPositions.values()) {
+			consumedPosition = Math.min(consumedPosition, position.longValue());
+		}
+		try {
+			this.frontierLog.checkpoint(consumedPosition);
+		} catch (IOException e) {
+			LOGGER.error("Could not checkpoint the crawl frontier at position " + consumedPosition, e);
+		}
+		this.lastCheckpointMillis = System.currentTimeMillis();
+
+	}
+
+}
@@ -1,12 +1,24 @@
 package controller;
 
-import java.io.FileNotFoundException;
-import java.io.UnsupportedEncodingException;
-import java.util.ArrayDeque;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
+import crawler.CredentialSlot;
 import crawler.FollowersRetriever;
+import file.io.BinaryTwitterIdFormat;
 import file.io.FileWriter;
+import file.io.FollowerStorage;
+import file.io.TwitterIdBuffer;
+import logging.Level;
+import logging.LogWriter;
+import logging.Logger;
+import metrics.Counter;
+import metrics.MetricsRegistry;
+import metrics.MetricsReporter;
+import metrics.Timer;
 import twitter4j.TwitterException;
 
 public class Crawler {
@@ -14,97 +26,461 @@ public class Crawler {
 	public static final int DEFAULT_CRAWL_TO_LEVEL = 1;
 	public static final int INSUFFICIENT_AUTHORITY_TO_PROFILE = 401;
 	public static final int PROFILE_DOES_NOT_EXIST = 404;
-	public static final int SLEEP_TIME_IN_SECONDS = 15 * 60;
-	public static final int NAP_TIME_IN_SECONDS = 1 * 60;
+	public static final int BACK_OFF_TIME_IN_SECONDS = 15 * 60;
 	public static final String FOLLOWERS_FOLDER = "followers/";
 	public static final String FRIENDS_FOLDER = "friends/";
+	public static final String FOLLOWERS_FILE_EXTENSION = ".txt";
+	public static final String BINARY_FORMAT_OPTION = "binary";
+	public static final String TEXT_FORMAT_OPTION = "text";
+	public static final String CREDENTIALS_OPTION = "credentials=";
+	public static final String METRICS_OPTION = "metrics=";
+	public static final String LOG_LEVEL_OPTION = "log=";
+	public static final int PIPELINE_QUEUE_CAPACITY = 64;
+	public static final int WRITE_BATCH_SIZE = 16;
 	
+	//Passed through the pipeline after the last fetched followers to stop the writer and expander
+	private static final FetchedFollowers END_OF_CRAWL = new FetchedFollowers(null, null);
+	
+	private static final Logger LOGGER = Logger.getLogger(Crawler.class);
+	private static final Counter LISTS_SAVED = MetricsRegistry.getInstance().getCounter("crawler.listsSaved");
+	private static final Timer FILE_WRITE_TIME = MetricsRegistry.getInstance().getTimer("crawler.fileWriteTime");
+	private static final Timer FLUSH_TIME = MetricsRegistry.getInstance().getTimer("crawler.flushTime");
+	
+	//File extension when followers are saved in a file per Twitter ID instead of being packed into storage segments
+	private String separateFileExtension = null;
+	private FollowerStorage followerStorage;
+	private String credentialsFile = CredentialSlot.DEFAULT_CREDENTIALS_FILE;
+	private BlockingQueue<FetchedFollowers> writeQueue;
+	private BlockingQueue<FetchedFollowers> expansionQueue;
+	private MetricsReporter metricsReporter;
 	
 	public static void main(String[] args) {
 		Crawler crawler = new Crawler();
 		crawler.startCrawling(args);
 	}
 	
+	/**
+	 * The first argument is the level to crawl to. It can be followed by the option text or binary to save followers in a
+	 * file per Twitter ID in that format rather than in storage segments, credentials=FILE to read credential slots from
+	 * a file other than credentials.properties, metrics=FILE to log the crawler metrics to a file every few seconds, and
+	 * log=LEVEL to change the lowest level of messages written to the console.
+	 * @param args
+	 */
 	private void startCrawling(String[] args) {
 		
 		int crawlToLevel = DEFAULT_CRAWL_TO_LEVEL;
 		if (args.length > 0 && args[0].trim().length() > 0) {
 			try {
 				crawlToLevel = Integer.parseInt(args[0].trim());
-				System.out.println("Crawl to level " + crawlToLevel);
+				LOGGER.info("Crawl to level " + crawlToLevel);
 			} catch (NumberFormatException e) {
-				System.err.println("Could not parse input parameter " + args[0]);
+				LOGGER.error("Could not parse input parameter " + args[0]);
+			}
+		}
+		
+		for (int argumentIndex = 1; argumentIndex < args.length; ++argumentIndex) {
+			String option = args[argumentIndex].trim();
+			if (BINARY_FORMAT_OPTION.equalsIgnoreCase(option)) {
+				this.separateFileExtension = BinaryTwitterIdFormat.FILE_EXTENSION;
+				LOGGER.info("Saving followers in binary files");
+			} else if (TEXT_FORMAT_OPTION.equalsIgnoreCase(option)) {
+				this.separateFileExtension = FOLLOWERS_FILE_EXTENSION;
+				LOGGER.info("Saving followers in text files");
+			} else if (option.startsWith(CREDENTIALS_OPTION)) {
+				this.credentialsFile = option.substring(CREDENTIALS_OPTION.length());
+			} else if (option.startsWith(METRICS_OPTION)) {
+				startMetricsReporter(option.substring(METRICS_OPTION.length()));
+			} else if (option.startsWith(LOG_LEVEL_OPTION)) {
+				try {
+					LogWriter.getInstance().setLevel(Level.valueOf(option.substring(LOG_LEVEL_OPTION.length()).toUpperCase()));
+				} catch (IllegalArgumentException e) {
+					LOGGER.error("Could not parse input parameter " + args[argumentIndex]);
+				}
+			} else if (option.length() > 0) {
+				LOGGER.error("Could not parse input parameter " + args[argumentIndex]);
 			}
 		}
 		
-		boolean crawlSuccess = false;
-		RestartController restartController = RestartController.getInstance();
-		while (!crawlSuccess) {
-			ArrayDeque<RestartQueueEntry> startingSet = restartController.getStartingSet();
-			crawlSuccess = crawlTwitterFollowers(startingSet, crawlToLevel);
+		List<CredentialSlot> credentialSlots = null;
+		try {
+			credentialSlots = CredentialSlot.loadCredentialSlots(this.credentialsFile);
+		} catch (IOException e) {
+			LOGGER.error("Could not read credential slots from " + this.credentialsFile, e);
+			return;
 		}
+		
+		try {
+			this.followerStorage = new FollowerStorage(FOLLOWERS_FOLDER);
+		} catch (IOException e) {
+			LOGGER.error("Could not open the follower storage in " + FOLLOWERS_FOLDER, e);
+			return;
+		}
+		TwitterIdSet crawledTwitterIds = getCrawledTwitterIds();
+		LOGGER.info("Followers already saved for " + crawledTwitterIds.size() + " Twitter IDs");
+		CrawlFrontier crawlFrontier = null;
+		try {
+			FrontierLog frontierLog = new FrontierLog(FrontierLog.DEFAULT_FRONTIER_FOLDER);
+			boolean newFrontier = frontierLog.isNew();
+			crawlFrontier = new CrawlFrontier(frontierLog, crawledTwitterIds);
+			if (newFrontier) {
+				crawlFrontier.addAll(RestartController.getInstance().getStartingSet());
+			} else {
+				LOGGER.info("Resuming crawl frontier with " + crawlFrontier.size() + " entries");
+			}
+		} catch (IOException e) {
+			LOGGER.error("Could not open the crawl frontier in " + FrontierLog.DEFAULT_FRONTIER_FOLDER, e);
+			return;
+		}
+		crawlTwitterFollowers(crawlFrontier, credentialSlots, crawlToLevel);
 
 	}
 	
-	private boolean crawlTwitterFollowers(ArrayDeque<RestartQueueEntry> startingSet, int crawlToLevel) {
+	/**
+	 * Crawl with one worker per credential slot, all taking Twitter IDs from the same frontier. A worker waiting out the rate
+	 * limit of its credentials does not hold up the others.
+	 *
+	 * Fetching is the first stage of a pipeline. The fetched followers go through a bounded queue to a writer thread that
+	 * saves them in batches, and from there through another bounded queue to a thread that puts them on the frontier. An
+	 * entry is only marked finished on the frontier once both are done. Workers block when the queues are full, so a slow
+	 * disk holds up fetching rather than filling the heap.
+	 * @param crawlFrontier
+	 * @param credentialSlots
+	 * @param crawlToLevel
+	 */
+	private void crawlTwitterFollowers(CrawlFrontier crawlFrontier, List<CredentialSlot> credentialSlots, int crawlToLevel) {
+		
+		this.writeQueue = new ArrayBlockingQueue<FetchedFollowers>(PIPELINE_QUEUE_CAPACITY);
+		this.expansionQueue = new ArrayBlockingQueue<FetchedFollowers>(PIPELINE_QUEUE_CAPACITY);
+		Thread followersWriter = new Thread(this.new FollowersWriter(crawlFrontier), "crawler-writer");
+		Thread frontierExpander = new Thread(this.new FrontierExpander(crawlFrontier, crawlToLevel), "crawler-expander");
+		followersWriter.start();
+		frontierExpander.start();
 		
-		boolean crawlSuccess = true;
-		String followersListFileName = null;
+		List<Thread> crawlWorkers = new ArrayList<Thread>();
+		for (CredentialSlot credentialSlot : credentialSlots) {
+			Thread crawlWorker = new Thread(this.new CrawlWorker(crawlFrontier, credentialSlot, crawlToLevel), "crawler-" + credentialSlot.getName());
+			crawlWorker.start();
+			crawlWorkers.add(crawlWorker);
+		}
+		LOGGER.info("Started " + crawlWorkers.size() + " crawl workers");
+		
+		try {
+			for (Thread crawlWorker : crawlWorkers) {
+				crawlWorker.join();
+			}
+			//Workers only stop once every entry has been finished, so the pipeline is empty by now
+			this.writeQueue.put(END_OF_CRAWL);
+			followersWriter.join();
+			frontierExpander.join();
+		} catch (InterruptedException e) {
+			LOGGER.error("Interrupted while waiting for the crawl to finish", e);
+			Thread.currentThread().interrupt();
+			return;
+		}
+		
+		try {
+			this.followerStorage.close();
+			crawlFrontier.close();
+		} catch (IOException e) {
+			LOGGER.error("Could not close the follower storage and crawl frontier", e);
+		}
+		LOGGER.info("Target crawl level " + crawlToLevel + " reached. Crawl process terminated.");
+		if (this.metricsReporter != null) {
+			this.metricsReporter.stop();
+		}
+		
+	}
+	
+	/**
+	 * Log the metrics to the file until the crawl is over
+	 * @param metricsLogFile
+	 */
+	private void startMetricsReporter(String metricsLogFile) {
+		
+		this.metricsReporter = new MetricsReporter(MetricsRegistry.getInstance(), metricsLogFile, MetricsReporter.DEFAULT_INTERVAL_SECONDS);
+		try {
+			this.metricsReporter.start();
+			LOGGER.info("Logging metrics to " + metricsLogFile);
+		} catch (IOException e) {
+			LOGGER.error("Could not open metrics log " + metricsLogFile, e);
+			this.metricsReporter = null;
+		}
 		
-		while (!startingSet.isEmpty()) {
+	}
+	
+	/**
+	 * Followers fetched for a frontier entry on their way through the pipeline
+	 *
+	 */
+	static class FetchedFollowers {
+		
+		private RestartQueueEntry restartQueueEntry;
+		private TwitterIdBuffer followersList;
+		
+		public FetchedFollowers(RestartQueueEntry restartQueueEntry, TwitterIdBuffer followersList) {
+			this.restartQueueEntry = restartQueueEntry;
+			this.followersList = followersList;
+		}
+		
+	}
+	
+	/**
+	 * Worker crawling Twitter IDs from the shared frontier with the credentials of one slot
+	 *
+	 */
+	class CrawlWorker implements Runnable {
+		
+		private CrawlFrontier crawlFrontier;
+		private CredentialSlot credentialSlot;
+		private int crawlToLevel;
+		
+		public CrawlWorker(CrawlFrontier crawlFrontier, CredentialSlot credentialSlot, int crawlToLevel) {
+			this.crawlFrontier = crawlFrontier;
+			this.credentialSlot = credentialSlot;
+			this.crawlToLevel = crawlToLevel;
+		}
+		
+		@Override
+		public void run() {
 			
-			RestartQueueEntry restartQueueEntry = startingSet.remove();
-			if (restartQueueEntry.getLevelNumber() >= crawlToLevel) {
-				System.out.println("Target crawl level is " + crawlToLevel + " and level reached is " + restartQueueEntry.getLevelNumber() + ". Crawl process terminated.");
-				break;
+			RestartQueueEntry restartQueueEntry = null;
+			try {
+				while ((restartQueueEntry = this.crawlFrontier.take()) != null) {
+					crawlTakenEntry(restartQueueEntry);
+				}
+			} catch (InterruptedException e) {
+				LOGGER.error("Crawl worker with credentials " + this.credentialSlot.getName() + " interrupted", e);
+			} catch (IOException e) {
+				LOGGER.error("Could not read the crawl frontier with credentials " + this.credentialSlot.getName(), e);
 			}
 			
-			FileWriter fileOperations = new FileWriter();
-			followersListFileName = FOLLOWERS_FOLDER + restartQueueEntry.getTwitterId() + ".txt";
-			if (!fileOperations.fileExists(followersListFileName)) {
-				try {
-					FollowersRetriever followersRetriever = new FollowersRetriever(restartQueueEntry.getTwitterId());
-					List<Long> followersList = followersRetriever.getFollowers();
-					//Save the list of followers
-					fileOperations.saveTwitterIdsList(followersListFileName, followersList);
-					putFollowersOnQueue(startingSet, followersList, restartQueueEntry.getLevelNumber() + 1);
-				} catch (TwitterException e) {
-					System.err.println("TwitterException thrown while finding followers for ID " + restartQueueEntry.getTwitterId() + " at level " + restartQueueEntry.getLevelNumber());
-					RestartController restartController = RestartController.getInstance();
-					//If exception is thrown due to insufficient authority to twitter profile, skip it
-					if (e.getStatusCode() == INSUFFICIENT_AUTHORITY_TO_PROFILE || e.getStatusCode() == PROFILE_DOES_NOT_EXIST) {
-						System.err.println("Not authorized to ID " + restartQueueEntry.getTwitterId() + " at level " + restartQueueEntry.getLevelNumber() + ". Twitter ID skipped");
-						System.err.println("Going to sleep for " + NAP_TIME_IN_SECONDS + " seconds.");
-						try {
-							restartController.sleepAtLeast(NAP_TIME_IN_SECONDS *1000);
-						} catch (InterruptedException e1) {
-							e1.printStackTrace();
+		}
+		
+		/**
+		 * Crawl an entry taken from the frontier and make sure it is given back however the crawl ends. The other workers
+		 * wait for every taken entry before they conclude the crawl is complete, so an entry left taken would stall them.
+		 * An entry failing with an unexpected exception is skipped so that it does not fail again and again, while one
+		 * interrupted or failing with an error is put back for another worker or the next run.
+		 * @param restartQueueEntry
+		 * @throws InterruptedException
+		 */
+		private void crawlTakenEntry(RestartQueueEntry restartQueueEntry) throws InterruptedException {
+			
+			boolean givenBack = false;
+			try {
+				if (!crawlTwitterId(restartQueueEntry)) {
+					//The request scheduler of the credentials holds back the next request for as long as needed
+					this.crawlFrontier.retry(restartQueueEntry);
+				}
+				givenBack = true;
+			} catch (RuntimeException e) {
+				LOGGER.error("Exception thrown while crawling ID " + restartQueueEntry.getTwitterId() + " at level " + restartQueueEntry.getLevelNumber() + " with credentials " + this.credentialSlot.getName() + ". Twitter ID skipped", e);
+				this.crawlFrontier.finished(restartQueueEntry);
+				givenBack = true;
+			} finally {
+				if (!givenBack) {
+					this.crawlFrontier.retry(restartQueueEntry);
+				}
+			}
+			
+		}
+		
+		/**
+		 * Retrieve the followers of the Twitter ID and pass them on to be saved and put on the frontier
+		 * @param restartQueueEntry
+		 * @return false if the Twitter ID needs to be tried again later
+		 * @throws InterruptedException
+		 */
+		private boolean crawlTwitterId(RestartQueueEntry restartQueueEntry) throws InterruptedException {
+			
+			//Twitter IDs already crawled never make it onto the frontier, so there is no need to check for their files here
+			if (restartQueueEntry.getLevelNumber() >= this.crawlToLevel) {
+				this.crawlFrontier.finished(restartQueueEntry);
+				return true;
+			}
+			
+			try {
+				FollowersRetriever followersRetriever = new FollowersRetriever(restartQueueEntry.getTwitterId(), this.credentialSlot);
+				TwitterIdBuffer followersList = followersRetriever.getFollowers();
+				writeQueue.put(new FetchedFollowers(restartQueueEntry, followersList));
+			} catch (TwitterException e) {
+				LOGGER.warn("TwitterException thrown while finding followers for ID " + restartQueueEntry.getTwitterId() + " at level " + restartQueueEntry.getLevelNumber());
+				if (CredentialSlot.isAuthenticationFailure(e)) {
+					//Rejected credentials also come with status 401, but the Twitter ID is not at fault and is kept for later
+					LOGGER.warn("Credentials " + this.credentialSlot.getName() + " rejected. Backing off for " + BACK_OFF_TIME_IN_SECONDS + " seconds.");
+					this.credentialSlot.getRequestScheduler().backOff(BACK_OFF_TIME_IN_SECONDS * 1000L);
+					return false;
+				} else if (e.getStatusCode() == INSUFFICIENT_AUTHORITY_TO_PROFILE || e.getStatusCode() == PROFILE_DOES_NOT_EXIST) {
+					//If exception is thrown due to insufficient authority to twitter profile, skip it. No quota is lost so there is no need to wait.
+					LOGGER.warn("Not authorized to ID " + restartQueueEntry.getTwitterId() + " at level " + restartQueueEntry.getLevelNumber() + ". Twitter ID skipped");
+					this.crawlFrontier.finished(restartQueueEntry);
+				} else if (e.exceededRateLimitation() && e.getRateLimitStatus() != null) {
+					//The scheduler already knows when the rate limit window resets
+					return false;
+				} else {
+					LOGGER.warn("Backing off for " + BACK_OFF_TIME_IN_SECONDS + " seconds with credentials " + this.credentialSlot.getName() + ".");
+					this.credentialSlot.getRequestScheduler().backOff(BACK_OFF_TIME_IN_SECONDS * 1000L);
+					return false;
+				}
+			}
+			
+			return true;
+			
+		}
+		
+	}
+	
+	/**
+	 * Pipeline stage saving fetched followers, taking as many as are waiting at a time up to WRITE_BATCH_SIZE. An entry
+	 * whose followers cannot be saved is retried rather than left taken, since the crawl waits for every taken entry.
+	 *
+	 */
+	class FollowersWriter implements Runnable {
+		
+		private CrawlFrontier crawlFrontier;
+		
+		public FollowersWriter(CrawlFrontier crawlFrontier) {
+			this.crawlFrontier = crawlFrontier;
+		}
+		
+		@Override
+		public void run() {
+			
+			List<FetchedFollowers> writeBatch = new ArrayList<FetchedFollowers>(WRITE_BATCH_SIZE);
+			List<FetchedFollowers> savedFollowers = new ArrayList<FetchedFollowers>(WRITE_BATCH_SIZE);
+			boolean endOfCrawl = false;
+			try {
+				while (!endOfCrawl) {
+					writeBatch.add(writeQueue.take());
+					writeQueue.drainTo(writeBatch, WRITE_BATCH_SIZE - 1);
+					for (FetchedFollowers fetchedFollowers : writeBatch) {
+						if (fetchedFollowers == END_OF_CRAWL) {
+							endOfCrawl = true;
+							continue;
 						}
-					} else {
-						startingSet.addFirst(restartQueueEntry);
-						System.err.println("Going to sleep for " + SLEEP_TIME_IN_SECONDS + " seconds.");
+						RestartQueueEntry restartQueueEntry = fetchedFollowers.restartQueueEntry;
 						try {
-							restartController.sleepAtLeast(SLEEP_TIME_IN_SECONDS * 1000);
-						} catch (InterruptedException e1) {
-							e1.printStackTrace();
+							long writeStartNanos = FILE_WRITE_TIME.start();
+							saveFollowersList(restartQueueEntry.getTwitterId(), fetchedFollowers.followersList);
+							FILE_WRITE_TIME.stop(writeStartNanos);
+							LISTS_SAVED.increment();
+							savedFollowers.add(fetchedFollowers);
+						} catch (IOException e) {
+							//The followers were never saved, so the Twitter ID is fetched again
+							LOGGER.error("Exception thrown while saving followers for ID " + restartQueueEntry.getTwitterId() + " at level " + restartQueueEntry.getLevelNumber() + ". Twitter ID retried", e);
+							this.crawlFrontier.retry(restartQueueEntry);
+						} catch (RuntimeException e) {
+							LOGGER.error("Exception thrown while saving followers for ID " + restartQueueEntry.getTwitterId() + " at level " + restartQueueEntry.getLevelNumber() + ". Twitter ID retried", e);
+							this.crawlFrontier.retry(restartQueueEntry);
 						}
 					}
-					restartController.saveCurrentState(startingSet);
-					crawlSuccess = false;
-					break;
-				}  catch (FileNotFoundException | UnsupportedEncodingException e) {
-					System.err.println("Exception thrown while saving followers for ID " + restartQueueEntry.getTwitterId() + " at level " + restartQueueEntry.getLevelNumber());
-				} 
+					
+					//The whole batch is made durable at once before any of it goes on to the frontier
+					try {
+						long flushStartNanos = FLUSH_TIME.start();
+						followerStorage.flush();
+						FLUSH_TIME.stop(flushStartNanos);
+					} catch (IOException e) {
+						//The lists of the batch may not have reached the disk, so they are fetched again rather than expanded
+						LOGGER.error("Exception thrown while flushing the follower storage. " + savedFollowers.size() + " Twitter IDs retried", e);
+						retryAll(savedFollowers);
+					} catch (RuntimeException e) {
+						LOGGER.error("Exception thrown while flushing the follower storage. " + savedFollowers.size() + " Twitter IDs retried", e);
+						retryAll(savedFollowers);
+					}
+					for (FetchedFollowers fetchedFollowers : savedFollowers) {
+						expansionQueue.put(fetchedFollowers);
+					}
+					savedFollowers.clear();
+					writeBatch.clear();
+				}
+				expansionQueue.put(END_OF_CRAWL);
+			} catch (InterruptedException e) {
+				LOGGER.error("Followers writer interrupted", e);
 			}
+			
 		}
 		
-		return crawlSuccess;
+		/**
+		 * Give the entries back to the frontier to be fetched again
+		 * @param failedFollowers followers whose entries are retried, cleared afterwards
+		 */
+		private void retryAll(List<FetchedFollowers> failedFollowers) {
+			
+			for (FetchedFollowers fetchedFollowers : failedFollowers) {
+				this.crawlFrontier.retry(fetchedFollowers.restartQueueEntry);
+			}
+			failedFollowers.clear();
+			
+		}
+		
+	}
+	
+	/**
+	 * Pipeline stage putting the followers that have been saved on the frontier and marking their entry finished. An entry
+	 * whose followers cannot be put on the frontier is retried, so it is fetched again rather than left taken.
+	 *
+	 */
+	class FrontierExpander implements Runnable {
+		
+		private CrawlFrontier crawlFrontier;
+		private int crawlToLevel;
+		
+		public FrontierExpander(CrawlFrontier crawlFrontier, int crawlToLevel) {
+			this.crawlFrontier = crawlFrontier;
+			this.crawlToLevel = crawlToLevel;
+		}
+		
+		@Override
+		public void run() {
+			
+			try {
+				for (FetchedFollowers fetchedFollowers = expansionQueue.take(); fetchedFollowers != END_OF_CRAWL; fetchedFollowers = expansionQueue.take()) {
+					RestartQueueEntry restartQueueEntry = fetchedFollowers.restartQueueEntry;
+					try {
+						if (restartQueueEntry.getLevelNumber() + 1 < this.crawlToLevel) {
+							this.crawlFrontier.addAll(fetchedFollowers.followersList, restartQueueEntry.getLevelNumber() + 1);
+						}
+						this.crawlFrontier.finished(restartQueueEntry);
+					} catch (IOException e) {
+						LOGGER.error("Exception thrown while putting followers of ID " + restartQueueEntry.getTwitterId() + " on the crawl frontier. Twitter ID retried", e);
+						this.crawlFrontier.retry(restartQueueEntry);
+					} catch (RuntimeException e) {
+						LOGGER.error("Exception thrown while putting followers of ID " + restartQueueEntry.getTwitterId() + " on the crawl frontier. Twitter ID retried", e);
+						this.crawlFrontier.retry(restartQueueEntry);
+					}
+				}
+			} catch (InterruptedException e) {
+				LOGGER.error("Frontier expander interrupted", e);
+			}
+			
+		}
 		
 	}
 	
-	private void putFollowersOnQueue(ArrayDeque<RestartQueueEntry> queue, List<Long> followersList, int level) {
-		for (long twitterId : followersList) {
-			queue.add(new RestartQueueEntry(level, twitterId));
+	/**
+	 * @return Twitter IDs whose followers have been saved by this or earlier crawls
+	 */
+	private TwitterIdSet getCrawledTwitterIds() {
+		
+		TwitterIdBuffer storedTwitterIds = this.followerStorage.getTwitterIds();
+		TwitterIdSet crawledTwitterIds = new TwitterIdSet(storedTwitterIds.size());
+		for (int twitterIdIndex = 0; twitterIdIndex < storedTwitterIds.size(); ++twitterIdIndex) {
+			crawledTwitterIds.add(storedTwitterIds.get(twitterIdIndex));
+		}
+		return crawledTwitterIds;
+		
+	}
+	
+	private void saveFollowersList(long twitterId, TwitterIdBuffer followersList) throws IOException {
+		
+		FileWriter fileOperations = new FileWriter();
+		if (this.separateFileExtension == null) {
+			this.followerStorage.append(twitterId, followersList);
+		} else if (BinaryTwitterIdFormat.FILE_EXTENSION.equals(this.separateFileExtension)) {
+			fileOperations.saveTwitterIds(FOLLOWERS_FOLDER + twitterId + this.separateFileExtension, followersList);
+		} else {
+			fileOperations.saveTwitterIdsText(FOLLOWERS_FOLDER + twitterId + this.separateFileExtension, followersList);
 		}
 		
 	}
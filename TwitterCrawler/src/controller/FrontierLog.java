@@ -0,0 +1,291 @@
+package controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Crawl frontier kept on disk as an append only log split into segment files. Every entry is a fixed size record of the
+ * crawl level and the Twitter ID, so the position of an entry is simply its record number. The consumer position is
+ * written to a checkpoint file now and then, and segments wholly before it are deleted. After a crash the log resumes
+ * from the last checkpoint, so entries taken since then are read again.
+ *
+ */
+public class FrontierLog {
+
+	public static final String DEFAULT_FRONTIER_FOLDER = "frontier/";
+	public static final String SEGMENT_FILE_PREFIX = "segment-";
+	public static final String SEGMENT_FILE_EXTENSION = ".log";
+	public static final String CHECKPOINT_FILE = "checkpoint.txt";
+	public static final int RECORD_SIZE = 12;
+	public static final int RECORDS_PER_SEGMENT = 1024 * 1024;
+	public static final int BUFFER_RECORDS = 4096;
+
+	private File frontierFolder;
+	private boolean newLog;
+
+	private FileChannel writeChannel;
+	private ByteBuffer writeBuffer;
+	private long writePosition;
+	private long flushedPosition;
+
+	private FileChannel readChannel;
+	private long readChannelSegment;
+	private ByteBuffer readBuffer;
+	private long readPosition;
+
+	/**
+	 * Open the log in the folder, creating it if it does not exist yet
+	 * @param frontierFolder
+	 * @throws IOException
+	 */
+	public FrontierLog(String frontierFolder) throws IOException {
+
+		this.frontierFolder = new File(frontierFolder);
+		if (!this.frontierFolder.isDirectory() && !this.frontierFolder.mkdirs()) {
+			throw new IOException("Could not create frontier folder " + frontierFolder);
+		}
+		this.writeBuffer = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		this.readBuffer = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		this.readChannelSegment = -1;
+		recover();
+
+	}
+
+	/**
+	 * @return true if there was no log in the folder when it was opened
+	 */
+	public boolean isNew() {
+		return this.newLog;
+	}
+
+	/**
+	 * Append an entry. It can only be read once the log has been flushed.
+	 * @param levelNumber
+	 * @param twitterId
+	 * @throws IOException
+	 */
+	public void append(int levelNumber, long twitterId) throws IOException {
+
+		if (!this.writeBuffer.hasRemaining() || (this.writePosition % RECORDS_PER_SEGMENT == 0 && this.writePosition > this.flushedPosition)) {
+			flush();
+		}
+		if (this.writePosition % RECORDS_PER_SEGMENT == 0 || this.writeChannel == null) {
+			openWriteChannel();
+		}
+		this.writeBuffer.putInt(levelNumber);
+		this.writeBuffer.putLong(twitterId);
+		++this.writePosition;
+
+	}
+
+	/**
+	 * Write the appended entries to the segment file so that they can be read
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+
+		this.writeBuffer.flip();
+		while (this.writeBuffer.hasRemaining()) {
+			this.writeChannel.write(this.writeBuffer);
+		}
+		this.writeBuffer.clear();
+		this.flushedPosition = this.writePosition;
+
+	}
+
+	/**
+	 * Read the next flushed entry
+	 * @return next entry or null if all flushed entries have been read
+	 * @throws IOException
+	 */
+	public RestartQueueEntry read() throws IOException {
+
+		if (!this.readBuffer.hasRemaining()) {
+			if (this.readPosition == this.flushedPosition) {
+				return null;
+			}
+			fillReadBuffer();
+		}
+		++this.readPosition;
+		return new RestartQueueEntry(this.readBuffer.getInt(), this.readBuffer.getLong());
+
+	}
+
+	/**
+	 * Move the reader to another position, for example back to where it was before the log was scanned
+	 * @param position
+	 */
+	public void seek(long position) {
+		this.readPosition = position;
+		this.readBuffer.clear();
+		this.readBuffer.limit(0);
+	}
+
+	/**
+	 * @return position of the next entry to be read
+	 */
+	public long getReadPosition() {
+		return this.readPosition;
+	}
+
+	/**
+	 * @return position the next entry will be appended at
+	 */
+	public long getWritePosition() {
+		return this.writePosition;
+	}
+
+	/**
+	 * Make the log durable up to now and record that every entry before the position has been dealt with. Segments holding
+	 * only such entries are deleted.
+	 * @param consumedPosition
+	 * @throws IOException
+	 */
+	public void checkpoint(long consumedPosition) throws IOException {
+
+		flush();
+		if (this.writeChannel != null) {
+			this.writeChannel.force(false);
+		}
+
+		File checkpointFile = new File(this.frontierFolder, CHECKPOINT_FILE);
+		File temporaryFile = new File(this.frontierFolder, CHECKPOINT_FILE + ".tmp");
+		Files.write(temporaryFile.toPath(), Long.toString(consumedPosition).getBytes(StandardCharsets.UTF_8));
+		Files.move(temporaryFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		for (long segment : getSegments()) {
+			if (segment < consumedPosition / RECORDS_PER_SEGMENT && segment != this.readChannelSegment) {
+				getSegmentFile(segment).delete();
+			}
+		}
+
+	}
+
+	public void close() throws IOException {
+
+		flush();
+		if (this.writeChannel != null) {
+			this.writeChannel.close();
+			this.writeChannel = null;
+		}
+		if (this.readChannel != null) {
+			this.readChannel.close();
+			this.readChannel = null;
+			this.readChannelSegment = -1;
+		}
+
+	}
+
+	/**
+	 * Find the end of the log from the segment files and the reader position from the checkpoint. A record only partly
+	 * written when the crawler stopped is cut off.
+	 * @throws IOException
+	 */
+	private void recover() throws IOException {
+
+		File checkpointFile = new File(this.frontierFolder, CHECKPOINT_FILE);
+		long[] segments = getSegments();
+		this.newLog = segments.length == 0 && !checkpointFile.isFile();
+
+		long checkpointPosition = segments.length == 0 ? 0 : segments[0] * RECORDS_PER_SEGMENT;
+		if (checkpointFile.isFile()) {
+			String checkpoint = new String(Files.readAllBytes(checkpointFile.toPath()), StandardCharsets.UTF_8).trim();
+			try {
+				checkpointPosition = Long.parseLong(checkpoint);
+			} catch (NumberFormatException e) {
+				throw new IOException("Could not parse frontier checkpoint " + checkpoint);
+			}
+		}
+
+		this.writePosition = checkpointPosition;
+		if (segments.length > 0) {
+			long lastSegment = segments[segments.length - 1];
+			RandomAccessFile randomAccessFile = new RandomAccessFile(getSegmentFile(lastSegment), "rw");
+			try {
+				long records = randomAccessFile.length() / RECORD_SIZE;
+				randomAccessFile.setLength(records * RECORD_SIZE);
+				this.writePosition = Math.max(lastSegment * RECORDS_PER_SEGMENT + records, checkpointPosition);
+			} finally {
+				randomAccessFile.close();
+			}
+		}
+		this.flushedPosition = this.writePosition;
+		seek(checkpointPosition);
+
+	}
+
+	private void openWriteChannel() throws IOException {
+
+		if (this.writeChannel != null) {
+			this.writeChannel.close();
+		}
+		this.writeChannel = new RandomAccessFile(getSegmentFile(this.writePosition / RECORDS_PER_SEGMENT), "rw").getChannel();
+		this.writeChannel.position((this.writePosition % RECORDS_PER_SEGMENT) * RECORD_SIZE);
+
+	}
+
+	/**
+	 * Read as many records as fit into the read buffer, stopping at the end of the segment or of the flushed entries
+	 * @throws IOException
+	 */
+	private void fillReadBuffer() throws IOException {
+
+		long segment = this.readPosition / RECORDS_PER_SEGMENT;
+		if (segment != this.readChannelSegment) {
+			if (this.readChannel != null) {
+				this.readChannel.close();
+			}
+			this.readChannel = new RandomAccessFile(getSegmentFile(segment), "r").getChannel();
+			this.readChannelSegment = segment;
+		}
+
+		long records = Math.min(Math.min(BUFFER_RECORDS, (segment + 1) * RECORDS_PER_SEGMENT - this.readPosition), this.flushedPosition - this.readPosition);
+		long filePosition = (this.readPosition % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+		this.readBuffer.clear();
+		this.readBuffer.limit((int) records * RECORD_SIZE);
+		while (this.readBuffer.hasRemaining()) {
+			if (this.readChannel.read(this.readBuffer, filePosition + this.readBuffer.position()) < 0) {
+				throw new IOException("Frontier segment " + segment + " ends before position " + this.flushedPosition);
+			}
+		}
+		this.readBuffer.flip();
+
+	}
+
+	/**
+	 * @return numbers of the segment files in the folder in ascending order
+	 */
+	private long[] getSegments() {
+
+		String[] fileNames = this.frontierFolder.list();
+		long[] segments = new long[fileNames == null ? 0 : fileNames.length];
+		int numberOfSegments = 0;
+		for (int fileIndex = 0; fileIndex < segments.length; ++fileIndex) {
+			String fileName = fileNames[fileIndex];
+			if (fileName.startsWith(SEGMENT_FILE_PREFIX) && fileName.endsWith(SEGMENT_FILE_EXTENSION)) {
+				try {
+					segments[numberOfSegments++] = Long.parseLong(fileName.substring(SEGMENT_FILE_PREFIX.length(), fileName.length() - SEGMENT_FILE_EXTENSION.length()));
+				} catch (NumberFormatException e) {
+					--numberOfSegments;
+				}
+			}
+		}
+		segments = Arrays.copyOf(segments, numberOfSegments);
+		Arrays.sort(segments);
+		return segments;
+
+	}
+
+	private File getSegmentFile(long segment) {
+		return new File(this.frontierFolder, SEGMENT_FILE_PREFIX + String.format("%010d", segment) + SEGMENT_FILE_EXTENSION);
+	}
+
+}
@@ -1,13 +1,11 @@
 package controller;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.List;
 
 import file.io.FileWriter;
+import logging.Logger;
 
 public class RestartController {
 	
@@ -15,12 +13,14 @@ public class RestartController {
 	public static final String SEED_SET_FILE = "SeedSet.txt";
 	public static final int SEED_ID_LEVEL = 0;
 
+	private static final Logger LOGGER = Logger.getLogger(RestartController.class);
+
 	private static RestartController restartControllerInstance = null;
 	
 	private RestartController() {
 	}
 	
-	public static RestartController getInstance() {
+	public static synchronized RestartController getInstance() {
 		if (restartControllerInstance == null) {
 			restartControllerInstance = new RestartController();
 		}
@@ -31,22 +31,22 @@ public class RestartController {
 		
 		FileWriter fileOperations = new FileWriter();
 		if (!fileOperations.fileExists(RESTART_STATUS_FILE)) {
-			System.out.println("Starting with seed set");
+			LOGGER.info("Starting with seed set");
 			return getSeedSet();
 		}
 		
 		try {
 			List<String> restartFileContents = fileOperations.getFileContents(RESTART_STATUS_FILE);
 			if (restartFileContents.isEmpty()) {
-				System.out.println("Starting with seed set");
+				LOGGER.info("Starting with seed set");
 				return getSeedSet();
 			} else {
-				System.out.println("Restarting from last point");
+				LOGGER.info("Restarting from last point");
 				return getRestartSet(restartFileContents);
 			}
 		
 		} catch (IOException e) {
-			e.printStackTrace();
+			LOGGER.error("Could not read " + RESTART_STATUS_FILE, e);
 			System.exit(0);
 		}
 		
@@ -66,7 +66,7 @@ public class RestartController {
 				}
 			}
 		} catch (IOException e) {
-			e.printStackTrace();
+			LOGGER.error("Could not read " + SEED_SET_FILE, e);
 			System.exit(0);
 		}
 		
@@ -76,48 +76,14 @@ public class RestartController {
 	
 	private ArrayDeque<RestartQueueEntry> getRestartSet(List<String> restartFileContents) {
 		
-		FileWriter fileOperations = new FileWriter();
 		ArrayDeque<RestartQueueEntry> returnValue = new ArrayDeque<RestartQueueEntry>();
-		try {
-			List<String> seedFileContents = fileOperations.getFileContents(RESTART_STATUS_FILE);
-			for (String twitterSeedId : seedFileContents) {
-				if (twitterSeedId.trim().length() > 0) {
-					returnValue.add(new RestartQueueEntry(twitterSeedId.trim()));
-				}
+		for (String restartEntry : restartFileContents) {
+			if (restartEntry.trim().length() > 0) {
+				returnValue.add(new RestartQueueEntry(restartEntry.trim()));
 			}
-		} catch (IOException e) {
-			e.printStackTrace();
-			System.exit(0);
-		}		return returnValue;
-		
-	}
-	
-	public void saveCurrentState(ArrayDeque<RestartQueueEntry> crawlSet) {
-		
-		List<String> crawlSetEntries = new ArrayList<String>();
-		while (!crawlSet.isEmpty()) {
-			crawlSetEntries.add(crawlSet.remove().toString());
-		}
-		FileWriter fileOperations = new FileWriter();
-		try {
-			fileOperations.writeListToFile(RESTART_STATUS_FILE, crawlSetEntries);
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
 		}
+		return returnValue;
 		
 	}
-	
-	public void sleepAtLeast(long millis) throws InterruptedException {
-		System.out.println("Starting sleep at " + System.currentTimeMillis());
-		long t0 = System.currentTimeMillis();
-		long millisLeft = millis;
-		while (millisLeft > 0) {
-			Thread.sleep(millisLeft);
-			long t1 = System.currentTimeMillis();
-			millisLeft = millis - (t1 - t0);
-		}
-		System.out.println("Ending sleep at " + System.currentTimeMillis());
-	} 
+
 }
@@ -1,7 +1,11 @@
 package controller;
 
+import logging.Logger;
+
 public class RestartQueueEntry {
 
+	private static final Logger LOGGER = Logger.getLogger(RestartQueueEntry.class);
+
 	private int levelNumber;
 	private long twitterId;
 	
@@ -16,7 +20,7 @@ public class RestartQueueEntry {
 		this.levelNumber = Integer.parseInt(savedEntryParts[0].trim());
 		this.twitterId = Long.parseLong(savedEntryParts[1].trim());
 		} catch (NumberFormatException e) {
-			System.err.println("NumberFormatException thrown while trying to parse " + savedRestartQueueEntry);
+			LOGGER.warn("NumberFormatException thrown while trying to parse " + savedRestartQueueEntry);
 		}
 	}
 	
@@ -0,0 +1,41 @@
+package controller;
+
+import file.io.TwitterIdHashTable;
+
+/**
+ * Set of Twitter IDs held in a TwitterIdHashTable without values, so that each ID costs a few slots of eight bytes rather
+ * than a boxed Long and a hash map entry.
+ *
+ */
+public class TwitterIdSet {
+
+	public static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+	private TwitterIdHashTable twitterIds;
+
+	public TwitterIdSet() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+
+	public TwitterIdSet(int expectedSize) {
+		this.twitterIds = new TwitterIdHashTable(expectedSize, false, TwitterIdHashTable.DEFAULT_MAXIMUM_LOAD_PERCENT);
+	}
+
+	/**
+	 * Add the Twitter ID if it is not already present
+	 * @param twitterId
+	 * @return true if the Twitter ID was added, false if it was already in the set
+	 */
+	public boolean add(long twitterId) {
+		return this.twitterIds.putIfAbsent(twitterId, 0) == TwitterIdHashTable.NOT_FOUND;
+	}
+
+	public boolean contains(long twitterId) {
+		return this.twitterIds.contains(twitterId);
+	}
+
+	public int size() {
+		return this.twitterIds.size();
+	}
+
+}
@@ -0,0 +1,160 @@
+package crawler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import logging.Logger;
+
+import twitter4j.Twitter;
+import twitter4j.TwitterException;
+import twitter4j.TwitterFactory;
+import twitter4j.conf.Configuration;
+import twitter4j.conf.ConfigurationBuilder;
+
+/**
+ * One set of API credentials together with the scheduler pacing the requests made with them. Slots are read from a properties
+ * file where the keys of slot n are prefixed with "n.":
+ *
+ * 1.oauth.consumerKey, 1.oauth.consumerSecret, 1.oauth.accessToken, 1.oauth.accessTokenSecret and optionally
+ * 1.restBaseURL to direct the slot at another endpoint such as a local stand in for the Twitter API.
+ *
+ * Slots are numbered from 1 without gaps. Without a credentials file a single slot uses twitter4j.properties.
+ *
+ */
+public class CredentialSlot {
+
+	public static final String DEFAULT_CREDENTIALS_FILE = "credentials.properties";
+	public static final String DEFAULT_SLOT_NAME = "default";
+	//API error codes meaning the credentials themselves were rejected, as opposed to a protected profile
+	public static final int COULD_NOT_AUTHENTICATE = 32;
+	public static final int INVALID_OR_EXPIRED_TOKEN = 89;
+
+	private static final Logger LOGGER = Logger.getLogger(CredentialSlot.class);
+
+	private String name;
+	private Configuration configuration;
+	private RequestScheduler requestScheduler;
+	private Twitter verifiedTwitter;
+
+	/**
+	 * @param name
+	 * @param configuration twitter4j configuration or null to use twitter4j.properties
+	 */
+	public CredentialSlot(String name, Configuration configuration) {
+		this.name = name;
+		this.configuration = configuration;
+		this.requestScheduler = new RequestScheduler(name);
+	}
+
+	/**
+	 * Read the credential slots in the file. If the file does not exist a single slot using twitter4j.properties is returned.
+	 * @param credentialsFile
+	 * @return
+	 * @throws IOException if the file exists but cannot be read or holds no complete slot
+	 */
+	public static List<CredentialSlot> loadCredentialSlots(String credentialsFile) throws IOException {
+
+		List<CredentialSlot> credentialSlots = new ArrayList<CredentialSlot>();
+		if (!new File(credentialsFile).isFile()) {
+			credentialSlots.add(new CredentialSlot(DEFAULT_SLOT_NAME, null));
+			return credentialSlots;
+		}
+
+		Properties credentials = new Properties();
+		InputStream inputStream = new FileInputStream(credentialsFile);
+		try {
+			credentials.load(inputStream);
+		} finally {
+			inputStream.close();
+		}
+
+		for (int slotNumber = 1; credentials.getProperty(slotNumber + ".oauth.consumerKey") != null; ++slotNumber) {
+			String prefix = slotNumber + ".";
+			ConfigurationBuilder configurationBuilder = new ConfigurationBuilder()
+				.setOAuthConsumerKey(credentials.getProperty(prefix + "oauth.consumerKey"))
+				.setOAuthConsumerSecret(credentials.getProperty(prefix + "oauth.consumerSecret"))
+				.setOAuthAccessToken(credentials.getProperty(prefix + "oauth.accessToken"))
+				.setOAuthAccessTokenSecret(credentials.getProperty(prefix + "oauth.accessTokenSecret"));
+			if (credentials.getProperty(prefix + "restBaseURL") != null) {
+				configurationBuilder.setRestBaseURL(credentials.getProperty(prefix + "restBaseURL"));
+			}
+			credentialSlots.add(new CredentialSlot(Integer.toString(slotNumber), configurationBuilder.build()));
+		}
+
+		if (credentialSlots.isEmpty()) {
+			throw new IOException("No credential slots found in " + credentialsFile);
+		}
+		return credentialSlots;
+
+	}
+
+	/**
+	 * @return new Twitter client for the credentials of this slot
+	 */
+	public Twitter createTwitter() {
+		return this.configuration == null ? new TwitterFactory().getInstance() : new TwitterFactory(this.configuration).getInstance();
+	}
+
+	/**
+	 * The client is verified once and then shared by all retrievers using this slot until it is invalidated
+	 * @return Twitter client whose credentials have been verified
+	 * @throws TwitterException if the credentials cannot be verified
+	 */
+	public synchronized Twitter getVerifiedTwitter() throws TwitterException {
+
+		if (this.verifiedTwitter == null) {
+			Twitter twitter = createTwitter();
+			twitter.verifyCredentials();
+			this.verifiedTwitter = twitter;
+			LOGGER.info("Verified credentials " + this.name);
+		}
+		return this.verifiedTwitter;
+
+	}
+
+	/**
+	 * @return true if a verified client is ready to be shared
+	 */
+	public synchronized boolean isVerified() {
+		return this.verifiedTwitter != null;
+	}
+
+	/**
+	 * Discard the client after its credentials were rejected so that the next one is verified again
+	 * @param twitter client that failed, which may already have been replaced by another retriever
+	 */
+	public synchronized void invalidateTwitter(Twitter twitter) {
+		if (this.verifiedTwitter == twitter) {
+			this.verifiedTwitter = null;
+		}
+	}
+
+	/**
+	 * @param twitterException
+	 * @return true if the request failed because the credentials were rejected
+	 */
+	public static boolean isAuthenticationFailure(TwitterException twitterException) {
+		return twitterException.getErrorCode() == COULD_NOT_AUTHENTICATE || twitterException.getErrorCode() == INVALID_OR_EXPIRED_TOKEN;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public RequestScheduler getRequestScheduler() {
+		return this.requestScheduler;
+	}
+
+	/**
+	 * @return requests left in the current rate limit window or RequestScheduler.UNKNOWN_REMAINING_REQUESTS before the first response
+	 */
+	public int getRemainingRequests() {
+		return this.requestScheduler.getRemainingRequests();
+	}
+
+}
@@ -1,9 +1,12 @@
 package crawler;
 
-import java.util.ArrayList;
-import java.util.List;
+import file.io.TwitterIdBuffer;
+import logging.Logger;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+import metrics.Timer;
 
-import controller.RestartController;
 import twitter4j.*;
 
 public class FollowersRetriever {
@@ -11,76 +14,101 @@ public class FollowersRetriever {
 	public static final long BEGINNING_CURSOR = -1;
 	public static final long NO_MORE_RESULTS = 0;
 	public static final int MAX_RESULTS = 5000;
+	
+	private static final Logger LOGGER = Logger.getLogger(FollowersRetriever.class);
+	private static final Counter API_CALLS = MetricsRegistry.getInstance().getCounter("crawler.apiCalls");
+	private static final Counter API_ERRORS = MetricsRegistry.getInstance().getCounter("crawler.apiErrors");
+	private static final Counter PAGES_FETCHED = MetricsRegistry.getInstance().getCounter("crawler.pagesFetched");
+	private static final Counter FOLLOWER_IDS_FETCHED = MetricsRegistry.getInstance().getCounter("crawler.followerIdsFetched");
+	private static final Histogram FOLLOWERS_PER_LIST = MetricsRegistry.getInstance().getHistogram("crawler.followersPerList");
+	private static final Timer REQUEST_TIME = MetricsRegistry.getInstance().getTimer("crawler.requestTime");
 
 	private long twitterId;
+	private CredentialSlot credentialSlot;
 	
-	public FollowersRetriever(long twitterId) {
+	/**
+	 * @param twitterId
+	 * @param credentialSlot credentials used for the requests, which also keep track of their rate limit budget
+	 */
+	public FollowersRetriever(long twitterId, CredentialSlot credentialSlot) {
 		this.twitterId = twitterId;
+		this.credentialSlot = credentialSlot;
 	}
 	
-	public List<Long> getFollowers() throws TwitterException  {
+	/**
+	 * Retrieve the followers page by page, taking a request from the scheduler of the credentials before each page. When
+	 * the credentials are rejected they are verified once more, again after taking a request from the scheduler.
+	 * @return
+	 * @throws TwitterException the error of the request. If the credentials are still rejected it is an authentication
+	 * failure, which CredentialSlot.isAuthenticationFailure tells apart from a protected or missing profile.
+	 * @throws InterruptedException
+	 */
+	public TwitterIdBuffer getFollowers() throws TwitterException, InterruptedException  {
 		
 
-		int secondsToSleep = 0;
 		long nextCursor = BEGINNING_CURSOR;
 		IDs followerIds = null;
-		List<Long> followerIdsList = new ArrayList<Long>();
-		User user = null;
+		TwitterIdBuffer followerIdsList = new TwitterIdBuffer();
+		RequestScheduler requestScheduler = this.credentialSlot.getRequestScheduler();
+		boolean reverified = false;
 		
-		Twitter twitter = new TwitterFactory().getInstance();
-		try {
-			user = twitter.verifyCredentials();
-		} catch (TwitterException e) {
-			System.err.println("Twitter exception thrown while verifying credentials.");
-			e.printStackTrace();
-			throw e;
+		//Credentials rejected earlier are only verified again once the scheduler lets the slot make requests
+		if (!this.credentialSlot.isVerified()) {
+			requestScheduler.acquire();
 		}
+		Twitter twitter = getVerifiedTwitter();
 		
 		do {
 			
 			//Get the list of followers and add to the list
+			requestScheduler.acquire();
+			API_CALLS.increment();
+			long requestStartNanos = REQUEST_TIME.start();
 			try {
 				followerIds = twitter.getFollowersIDs(this.twitterId, nextCursor);
 			} catch (TwitterException e) {
-				System.err.println("Twitter exception thrown while getting follower ids.");
-				e.printStackTrace();
-				throw e;
-			}
-			addIdsToFollowersList(followerIdsList, followerIds.getIDs());
-			
-			//Wait for a while if retrieval rate limit has been exceeded
-			if (followerIds.getRateLimitStatus().getRemaining() == 0) {
-				secondsToSleep = followerIds.getRateLimitStatus().getSecondsUntilReset() + 1;
-				if (secondsToSleep > 0) {
-					System.out.println("Sleeping for " + secondsToSleep + " seconds while retrieving followers for Twitter ID " + this.twitterId);
-					try {
-						RestartController.getInstance().sleepAtLeast(secondsToSleep * 1000);
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
+				REQUEST_TIME.stop(requestStartNanos);
+				API_ERRORS.increment();
+				//Errors carry the rate limit status too, which tells whether they used up quota
+				requestScheduler.update(e.getRateLimitStatus());
+				if (CredentialSlot.isAuthenticationFailure(e) && !reverified) {
+					//Verify the credentials again and retry the same page once
+					LOGGER.warn("Credentials " + this.credentialSlot.getName() + " rejected while getting follower ids. Verifying again.");
+					this.credentialSlot.invalidateTwitter(twitter);
+					//Verifying is a request too, so it waits its turn like one
+					requestScheduler.acquire();
+					twitter = getVerifiedTwitter();
+					reverified = true;
+					continue;
 				}
+				LOGGER.warn("Twitter exception thrown while getting follower ids.", e);
+				throw e;
 			}
+			REQUEST_TIME.stop(requestStartNanos);
+			requestScheduler.update(followerIds.getRateLimitStatus());
+			followerIdsList.addAll(followerIds.getIDs());
+			PAGES_FETCHED.increment();
+			FOLLOWER_IDS_FETCHED.add(followerIds.getIDs().length);
 			
 			//Get the next cursor to be used for retrieval of followers
 			nextCursor = followerIds.getNextCursor();
 			
 		} while (nextCursor != NO_MORE_RESULTS && followerIdsList.size() < MAX_RESULTS);
 		
+		FOLLOWERS_PER_LIST.record(followerIdsList.size());
 		return followerIdsList;
 		
 	}
 	
-	
-	/** Add contents of an array to a list
-	 * @param followerIdsList
-	 * @param newFollowers
-	 */
-	private void addIdsToFollowersList(List<Long> followerIdsList, long[] newFollowers) {
+	private Twitter getVerifiedTwitter() throws TwitterException {
 		
-		for (long follower : newFollowers) {
-			followerIdsList.add(Long.valueOf(follower));
+		try {
+			return this.credentialSlot.getVerifiedTwitter();
+		} catch (TwitterException e) {
+			LOGGER.warn("Twitter exception thrown while verifying credentials.", e);
+			throw e;
 		}
-
+		
 	}
 		
 }
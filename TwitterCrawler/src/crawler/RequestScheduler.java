@@ -0,0 +1,106 @@
+package crawler;
+
+import logging.Logger;
+import metrics.MetricsRegistry;
+import metrics.Timer;
+import twitter4j.RateLimitStatus;
+
+/**
+ * Token bucket pacing the requests made with one set of credentials. The bucket holds the requests left in the current
+ * rate limit window, taken from the RateLimitStatus of the last response less the requests issued since. Requests go out
+ * as long as there are tokens, and once the bucket is empty they wait only until the window resets. Responses that do
+ * not use up quota, such as a protected profile, cost no wait at all.
+ *
+ */
+public class RequestScheduler {
+
+	public static final int UNKNOWN_REMAINING_REQUESTS = -1;
+	//Added to the reset time reported by the API to allow for the clocks being slightly apart
+	public static final long RESET_MARGIN_MILLIS = 1000;
+	
+	private static final Logger LOGGER = Logger.getLogger(RequestScheduler.class);
+	private static final Timer RATE_LIMIT_WAIT = MetricsRegistry.getInstance().getTimer("crawler.rateLimitWait");
+
+	private String name;
+	private int remainingRequests;
+	private long resetTimeMillis;
+	private long backOffUntilMillis;
+
+	/**
+	 * @param name name of the credentials used in log messages
+	 */
+	public RequestScheduler(String name) {
+		this.name = name;
+		this.remainingRequests = UNKNOWN_REMAINING_REQUESTS;
+		this.resetTimeMillis = 0;
+		this.backOffUntilMillis = 0;
+	}
+
+	/**
+	 * Take a token for one request, waiting for the rate limit window to reset if none are left
+	 * @throws InterruptedException
+	 */
+	public synchronized void acquire() throws InterruptedException {
+
+		long waitUntilMillis = getWaitUntilMillis();
+		if (waitUntilMillis > System.currentTimeMillis()) {
+			LOGGER.info("Waiting " + (waitUntilMillis - System.currentTimeMillis()) / 1000 + " seconds for requests with credentials " + this.name);
+			long waitStartNanos = RATE_LIMIT_WAIT.start();
+			for (long now = System.currentTimeMillis(); now < waitUntilMillis; now = System.currentTimeMillis()) {
+				wait(waitUntilMillis - now);
+				waitUntilMillis = getWaitUntilMillis();
+			}
+			RATE_LIMIT_WAIT.stop(waitStartNanos);
+		}
+
+		if (this.remainingRequests == 0) {
+			//The window has reset and the next response reports the new budget
+			this.remainingRequests = UNKNOWN_REMAINING_REQUESTS;
+		} else if (this.remainingRequests > 0) {
+			--this.remainingRequests;
+		}
+
+	}
+
+	/**
+	 * Refill the bucket from the rate limit status reported with a response or an error
+	 * @param rateLimitStatus null if the response did not carry one
+	 */
+	public synchronized void update(RateLimitStatus rateLimitStatus) {
+
+		if (rateLimitStatus != null) {
+			this.remainingRequests = Math.max(rateLimitStatus.getRemaining(), 0);
+			this.resetTimeMillis = System.currentTimeMillis() + rateLimitStatus.getSecondsUntilReset() * 1000L + RESET_MARGIN_MILLIS;
+			notifyAll();
+		}
+
+	}
+
+	/**
+	 * Hold back further requests for a while after an error that says nothing about the rate limit
+	 * @param millis
+	 */
+	public synchronized void backOff(long millis) {
+		this.backOffUntilMillis = Math.max(this.backOffUntilMillis, System.currentTimeMillis() + millis);
+		notifyAll();
+	}
+
+	/**
+	 * @return requests left in the current rate limit window or UNKNOWN_REMAINING_REQUESTS before the first response
+	 */
+	public synchronized int getRemainingRequests() {
+		return this.remainingRequests;
+	}
+
+	/**
+	 * @return time the current rate limit window resets or zero before the first response
+	 */
+	public synchronized long getResetTimeMillis() {
+		return this.resetTimeMillis;
+	}
+
+	private long getWaitUntilMillis() {
+		return this.remainingRequests == 0 ? Math.max(this.resetTimeMillis, this.backOffUntilMillis) : this.backOffUntilMillis;
+	}
+
+}
@@ -0,0 +1,162 @@
+package file.io;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compact binary layout for a list of Twitter IDs. A file starts with the magic bytes "TWID", a version byte and the
+ * number of IDs as a little endian int. Each ID follows as the difference from the previous ID (zero for the first),
+ * zigzag encoded so that negative differences stay short, and written as a varint of seven bits per byte with the high
+ * bit set on every byte but the last.
+ *
+ */
+public class BinaryTwitterIdFormat {
+
+	public static final String FILE_EXTENSION = ".ids";
+	public static final byte[] MAGIC = { 'T', 'W', 'I', 'D' };
+	public static final byte VERSION = 1;
+	public static final int HEADER_SIZE = MAGIC.length + 1 + 4;
+	public static final int MAXIMUM_VARINT_SIZE = 10;
+
+	/**
+	 * @param bytes
+	 * @param length number of valid bytes in the array
+	 * @return true if the bytes start with the magic bytes of the format
+	 */
+	public static boolean hasMagic(byte[] bytes, int length) {
+
+		if (length < MAGIC.length) {
+			return false;
+		}
+		for (int magicIndex = 0; magicIndex < MAGIC.length; ++magicIndex) {
+			if (bytes[magicIndex] != MAGIC[magicIndex]) {
+				return false;
+			}
+		}
+		return true;
+
+	}
+
+	/**
+	 * Read the number of IDs from a header
+	 * @param header
+	 * @param length number of valid bytes in the array
+	 * @return number of IDs that follow the header
+	 * @throws IOException if the header is incomplete or of an unknown version
+	 */
+	public static int readCount(byte[] header, int length) throws IOException {
+
+		if (length < HEADER_SIZE || !hasMagic(header, length)) {
+			throw new IOException("Incomplete Twitter ID file header");
+		}
+		if (header[MAGIC.length] != VERSION) {
+			throw new IOException("Unsupported Twitter ID file version " + header[MAGIC.length]);
+		}
+		int countOffset = MAGIC.length + 1;
+		return (header[countOffset] & 0xFF) | (header[countOffset + 1] & 0xFF) << 8 | (header[countOffset + 2] & 0xFF) << 16 | (header[countOffset + 3] & 0xFF) << 24;
+
+	}
+
+	/**
+	 * Encode the IDs including the header
+	 * @param twitterIds
+	 * @return encoded bytes
+	 */
+	public static byte[] encode(TwitterIdBuffer twitterIds) {
+		byte[] encodedBytes = new byte[HEADER_SIZE + twitterIds.size() * MAXIMUM_VARINT_SIZE];
+		int encodedLength = encode(twitterIds, encodedBytes);
+		return encodedLength == encodedBytes.length ? encodedBytes : Arrays.copyOf(encodedBytes, encodedLength);
+	}
+
+	/**
+	 * Encode the IDs including the header into an array large enough to hold MAXIMUM_VARINT_SIZE bytes per ID
+	 * @param twitterIds
+	 * @param encodedBytes
+	 * @return number of bytes written
+	 */
+	public static int encode(TwitterIdBuffer twitterIds, byte[] encodedBytes) {
+
+		int numberOfTwitterIds = twitterIds.size();
+		System.arraycopy(MAGIC, 0, encodedBytes, 0, MAGIC.length);
+		encodedBytes[MAGIC.length] = VERSION;
+		int position = MAGIC.length + 1;
+		encodedBytes[position++] = (byte) numberOfTwitterIds;
+		encodedBytes[position++] = (byte) (numberOfTwitterIds >>> 8);
+		encodedBytes[position++] = (byte) (numberOfTwitterIds >>> 16);
+		encodedBytes[position++] = (byte) (numberOfTwitterIds >>> 24);
+
+		long previousTwitterId = 0;
+		for (int twitterIdIndex = 0; twitterIdIndex < numberOfTwitterIds; ++twitterIdIndex) {
+			long delta = twitterIds.get(twitterIdIndex) - previousTwitterId;
+			previousTwitterId = twitterIds.get(twitterIdIndex);
+			long zigzagDelta = (delta << 1) ^ (delta >> 63);
+			while ((zigzagDelta & ~0x7FL) != 0) {
+				encodedBytes[position++] = (byte) ((zigzagDelta & 0x7F) | 0x80);
+				zigzagDelta >>>= 7;
+			}
+			encodedBytes[position++] = (byte) zigzagDelta;
+		}
+
+		return position;
+
+	}
+
+	/**
+	 * Decoder for the IDs following the header. Bytes can be fed in pieces of any size.
+	 *
+	 */
+	public static class Decoder {
+
+		private int twitterIdsRemaining;
+		private long previousTwitterId;
+		private long zigzagDelta;
+		private int shift;
+
+		public Decoder(int numberOfTwitterIds) {
+			this.twitterIdsRemaining = numberOfTwitterIds;
+		}
+
+		/**
+		 * Decode the bytes and append the completed IDs to the buffer
+		 * @param bytes
+		 * @param offset
+		 * @param length
+		 * @param twitterIds
+		 * @throws IOException if the bytes hold more IDs than the header announced or a malformed varint
+		 */
+		public void decode(byte[] bytes, int offset, int length, TwitterIdBuffer twitterIds) throws IOException {
+
+			int end = offset + length;
+			for (int position = offset; position < end; ++position) {
+				if (this.twitterIdsRemaining == 0) {
+					throw new IOException("Unexpected bytes after last Twitter ID");
+				}
+				this.zigzagDelta |= (long) (bytes[position] & 0x7F) << this.shift;
+				if ((bytes[position] & 0x80) == 0) {
+					this.previousTwitterId += (this.zigzagDelta >>> 1) ^ -(this.zigzagDelta & 1);
+					twitterIds.add(this.previousTwitterId);
+					--this.twitterIdsRemaining;
+					this.zigzagDelta = 0;
+					this.shift = 0;
+				} else {
+					this.shift += 7;
+					if (this.shift > 63) {
+						throw new IOException("Malformed Twitter ID varint");
+					}
+				}
+			}
+
+		}
+
+		/**
+		 * @throws IOException if fewer IDs were decoded than the header announced
+		 */
+		public void finish() throws IOException {
+			if (this.twitterIdsRemaining != 0 || this.shift != 0) {
+				throw new IOException("Twitter ID file is truncated, " + this.twitterIdsRemaining + " IDs missing");
+			}
+		}
+
+	}
+
+}
@@ -3,15 +3,21 @@ package file.io;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
 public class FileWriter {
 
+	//Digits of the longest long including the sign
+	public static final int MAXIMUM_DECIMAL_DIGITS = 20;
+
 	public void writeTextToFile(String fileName, String text) throws FileNotFoundException, UnsupportedEncodingException  {
 		
 		PrintWriter writer = new PrintWriter(fileName, "UTF-8");
@@ -40,6 +46,78 @@ public class FileWriter {
 		
 	}
 
+	/**
+	 * Save the list of Twitter IDs in the binary Twitter ID format
+	 * @param fileName
+	 * @param twitterIds
+	 * @throws IOException
+	 */
+	public void saveTwitterIds(String fileName, TwitterIdBuffer twitterIds) throws IOException {
+		
+		byte[] encodedBytes = new byte[BinaryTwitterIdFormat.HEADER_SIZE + twitterIds.size() * BinaryTwitterIdFormat.MAXIMUM_VARINT_SIZE];
+		int encodedLength = BinaryTwitterIdFormat.encode(twitterIds, encodedBytes);
+		OutputStream outputStream = new FileOutputStream(fileName);
+		try {
+			outputStream.write(encodedBytes, 0, encodedLength);
+		} finally {
+			outputStream.close();
+		}
+		
+	}
+	
+	/**
+	 * Save the list of Twitter IDs as text with one ID per line, the same as saveTwitterIdsList but with the digits written
+	 * straight into a byte array instead of going through Long objects and strings
+	 * @param fileName
+	 * @param twitterIds
+	 * @throws IOException
+	 */
+	public void saveTwitterIdsText(String fileName, TwitterIdBuffer twitterIds) throws IOException {
+		
+		byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+		byte[] encodedBytes = new byte[twitterIds.size() * (MAXIMUM_DECIMAL_DIGITS + lineSeparator.length)];
+		int position = 0;
+		for (int twitterIdIndex = 0; twitterIdIndex < twitterIds.size(); ++twitterIdIndex) {
+			position = encodeDecimal(twitterIds.get(twitterIdIndex), encodedBytes, position);
+			System.arraycopy(lineSeparator, 0, encodedBytes, position, lineSeparator.length);
+			position += lineSeparator.length;
+		}
+		
+		OutputStream outputStream = new FileOutputStream(fileName);
+		try {
+			outputStream.write(encodedBytes, 0, position);
+		} finally {
+			outputStream.close();
+		}
+		
+	}
+	
+	/**
+	 * Write the decimal digits of the number into the array
+	 * @param number
+	 * @param encodedBytes
+	 * @param position
+	 * @return position after the last digit
+	 */
+	private static int encodeDecimal(long number, byte[] encodedBytes, int position) {
+		
+		if (number < 0) {
+			encodedBytes[position++] = '-';
+		}
+		int numberOfDigits = 1;
+		//Work with the negative value so that Long.MIN_VALUE does not overflow
+		long negativeNumber = number < 0 ? number : -number;
+		for (long remainingDigits = negativeNumber / 10; remainingDigits != 0; remainingDigits /= 10) {
+			++numberOfDigits;
+		}
+		for (int digitIndex = numberOfDigits - 1; digitIndex >= 0; --digitIndex) {
+			encodedBytes[position + digitIndex] = (byte) ('0' - negativeNumber % 10);
+			negativeNumber /= 10;
+		}
+		return position + numberOfDigits;
+		
+	}
+
 	public boolean fileExists(String fileName) {
 		
 		File file = new File(fileName);
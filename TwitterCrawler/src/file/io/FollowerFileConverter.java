@@ -0,0 +1,159 @@
+package file.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import logging.Logger;
+
+/**
+ * One shot tool converting a folder of text follower files into the binary Twitter ID format. When the target folder is
+ * the source folder each text file is removed once its binary copy has been written.
+ *
+ * With the option segments the follower files, text or binary, are instead packed into the segments of a FollowerStorage
+ * in the target folder. Packing in place removes the files once the storage index holds their lists.
+ *
+ */
+public class FollowerFileConverter {
+
+	public static final String TEXT_FILE_EXTENSION = ".txt";
+	public static final String SEGMENTS_OPTION = "segments";
+	public static final int PACKED_LISTS_PER_FLUSH = 1024;
+
+	private static final Logger LOGGER = Logger.getLogger(FollowerFileConverter.class);
+
+	public static void main(String[] args) {
+
+		boolean packIntoSegments = args.length > 0 && SEGMENTS_OPTION.equalsIgnoreCase(args[args.length - 1].trim());
+		int numberOfFolders = packIntoSegments ? args.length - 1 : args.length;
+		if (numberOfFolders == 0 || args[0].trim().length() == 0) {
+			System.err.println("Usage: FollowerFileConverter <followers folder> [target folder] [" + SEGMENTS_OPTION + "]");
+			return;
+		}
+
+		String sourceFolder = args[0].trim();
+		String targetFolder = numberOfFolders > 1 && args[1].trim().length() > 0 ? args[1].trim() : sourceFolder;
+
+		FollowerFileConverter followerFileConverter = new FollowerFileConverter();
+		if (packIntoSegments) {
+			followerFileConverter.packFolder(sourceFolder, targetFolder);
+		} else {
+			followerFileConverter.convertFolder(sourceFolder, targetFolder);
+		}
+
+	}
+
+	/**
+	 * Convert every text follower file in the source folder
+	 * @param sourceFolder
+	 * @param targetFolder
+	 */
+	public void convertFolder(String sourceFolder, String targetFolder) {
+
+		FileWriter fileOperations = new FileWriter();
+		String[] folderContents = fileOperations.getFolderContents(sourceFolder);
+		if (folderContents == null) {
+			LOGGER.error("Followers folder " + sourceFolder + " not found");
+			return;
+		}
+		if (!fileOperations.folderExists(targetFolder) && !new File(targetFolder).mkdirs()) {
+			LOGGER.error("Could not create target folder " + targetFolder);
+			return;
+		}
+		boolean replaceTextFiles = new File(sourceFolder).getAbsoluteFile().equals(new File(targetFolder).getAbsoluteFile());
+
+		TwitterIdFileReader twitterIdFileReader = new TwitterIdFileReader();
+		TwitterIdBuffer twitterIds = new TwitterIdBuffer();
+		int filesConverted = 0;
+		long bytesBefore = 0, bytesAfter = 0;
+
+		for (String fileName : folderContents) {
+			if (!fileName.endsWith(TEXT_FILE_EXTENSION)) {
+				continue;
+			}
+			File textFile = new File(sourceFolder, fileName);
+			File binaryFile = new File(targetFolder, fileName.substring(0, fileName.length() - TEXT_FILE_EXTENSION.length()) + BinaryTwitterIdFormat.FILE_EXTENSION);
+			try {
+				twitterIds.clear();
+				twitterIdFileReader.readTwitterIds(textFile.getPath(), twitterIds);
+				fileOperations.saveTwitterIds(binaryFile.getPath(), twitterIds);
+				bytesBefore += textFile.length();
+				bytesAfter += binaryFile.length();
+				++filesConverted;
+				if (replaceTextFiles && !textFile.delete()) {
+					LOGGER.warn("Could not remove " + textFile.getPath() + " after conversion");
+				}
+			} catch (NumberFormatException e) {
+				LOGGER.warn("NumberFormatException thrown while converting " + textFile.getPath() + ". File skipped.");
+			} catch (IOException e) {
+				LOGGER.warn("IOException thrown while converting " + textFile.getPath() + ". File skipped.", e);
+			}
+		}
+
+		System.out.println("Converted " + filesConverted + " files from " + bytesBefore + " to " + bytesAfter + " bytes");
+
+	}
+
+	/**
+	 * Pack every follower file in the source folder into the storage segments of the target folder
+	 * @param sourceFolder
+	 * @param targetFolder
+	 */
+	public void packFolder(String sourceFolder, String targetFolder) {
+
+		if (!new FileWriter().folderExists(sourceFolder)) {
+			LOGGER.error("Followers folder " + sourceFolder + " not found");
+			return;
+		}
+		boolean removeFollowerFiles = new File(sourceFolder).getAbsoluteFile().equals(new File(targetFolder).getAbsoluteFile());
+
+		try {
+			FollowerStorage sourceStorage = new FollowerStorage(sourceFolder);
+			FollowerStorage targetStorage = new FollowerStorage(targetFolder);
+			FollowerStorage.Reader followerReader = sourceStorage.newReader();
+			TwitterIdBuffer twitterIds = new TwitterIdBuffer();
+			List<File> packedFiles = new ArrayList<File>();
+			long bytesBefore = 0;
+
+			try {
+				for (int listIndex = 0; listIndex < sourceStorage.size(); ++listIndex) {
+					if (!sourceStorage.isSeparateFile(listIndex)) {
+						continue;
+					}
+					File followerFile = sourceStorage.getSeparateFile(listIndex);
+					try {
+						twitterIds.clear();
+						followerReader.readFollowers(listIndex, twitterIds);
+						targetStorage.append(sourceStorage.getTwitterId(listIndex), twitterIds);
+						bytesBefore += followerFile.length();
+						packedFiles.add(followerFile);
+					} catch (NumberFormatException e) {
+						LOGGER.warn("NumberFormatException thrown while packing " + followerFile.getPath() + ". File skipped.");
+					} catch (IOException e) {
+						LOGGER.warn("IOException thrown while packing " + followerFile.getPath() + ". File skipped.", e);
+					}
+					if (packedFiles.size() % PACKED_LISTS_PER_FLUSH == 0) {
+						targetStorage.flush();
+					}
+				}
+			} finally {
+				followerReader.close();
+				targetStorage.close();
+			}
+
+			if (removeFollowerFiles) {
+				for (File followerFile : packedFiles) {
+					if (!followerFile.delete()) {
+						LOGGER.warn("Could not remove " + followerFile.getPath() + " after packing");
+					}
+				}
+			}
+			System.out.println("Packed " + packedFiles.size() + " files of " + bytesBefore + " bytes into segments in " + targetFolder);
+		} catch (IOException e) {
+			LOGGER.error("IOException thrown while packing " + sourceFolder + " into segments", e);
+		}
+
+	}
+
+}
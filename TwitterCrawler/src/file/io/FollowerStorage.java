@@ -0,0 +1,562 @@
+package file.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import logging.Logger;
+
+/**
+ * Follower lists stored in a followers folder. New lists are packed into large append only segment files in the binary
+ * Twitter ID format, and an index file records the Twitter ID, segment, offset and length of every list. The index is
+ * read in full when the storage is opened, so no directory needs to be listed or searched per Twitter ID. Follower files
+ * of the older one file per Twitter ID layout, text or binary, are listed once and read as well.
+ *
+ * Index records are only written once the lists they point at are on disk, so after a crash the index holds complete
+ * lists only and whatever followed them in the last segment is written over.
+ *
+ * A Twitter ID whose followers were fetched more than once has several lists stored. When the storage is opened each
+ * Twitter ID is resolved to its latest list: the last one appended to the segments, or failing that the newest of its
+ * follower files. The list indexes, size and Twitter IDs of the storage only cover these, one list per Twitter ID, as
+ * they were when the storage was opened.
+ *
+ * A storage is either appended to by the crawler or read by the loader. Readers from several threads can share it.
+ *
+ */
+public class FollowerStorage {
+
+	public static final String INDEX_FILE = "followers.idx";
+	public static final String SEGMENT_FILE_PREFIX = "followers-";
+	public static final String SEGMENT_FILE_EXTENSION = ".seg";
+	public static final String TEXT_FILE_EXTENSION = ".txt";
+	public static final byte[] INDEX_MAGIC = { 'T', 'W', 'F', 'I' };
+	public static final int INDEX_VERSION = 1;
+	public static final int INDEX_HEADER_SIZE = 8;
+	public static final int INDEX_RECORD_SIZE = 24;
+	public static final long MAXIMUM_SEGMENT_SIZE = 1L << 30;
+	public static final int INITIAL_INDEX_CAPACITY = 1024;
+
+	private static final Logger LOGGER = Logger.getLogger(FollowerStorage.class);
+
+	private File followersFolder;
+	private long lastModified;
+
+	//Index of the lists in segment files, in the order they were appended
+	private long[] indexedTwitterIds;
+	private int[] indexedSegments;
+	private long[] indexedOffsets;
+	private int[] indexedLengths;
+	private int numberOfIndexRecords;
+
+	//Index record of the latest list of every Twitter ID with a list in the segments, in index order
+	private int[] listRecords;
+	private int numberOfIndexedLists;
+
+	//Follower files of the one file per Twitter ID layout, for Twitter IDs without a list in the segments
+	private String[] followerFileNames;
+	private long[] followerFileTwitterIds;
+	//Every follower file in the folder, including those replaced by a later list
+	private String[] allFollowerFileNames;
+	private long followerFilesFingerprint;
+
+	private FileChannel indexChannel;
+	private FileChannel segmentChannel;
+	private int writeSegment;
+	private long writeOffset;
+	private int numberOfUnflushedLists;
+	private byte[] encodedBytes;
+
+	/**
+	 * Open the storage in the folder. The folder is created when the first list is appended.
+	 * @param followersFolder
+	 * @throws IOException if the index cannot be read
+	 */
+	public FollowerStorage(String followersFolder) throws IOException {
+
+		this.followersFolder = new File(followersFolder);
+		//Taken before the index is read, so that lists added meanwhile make the storage look older rather than newer
+		this.lastModified = getLastModified(followersFolder);
+		this.indexedTwitterIds = new long[INITIAL_INDEX_CAPACITY];
+		this.indexedSegments = new int[INITIAL_INDEX_CAPACITY];
+		this.indexedOffsets = new long[INITIAL_INDEX_CAPACITY];
+		this.indexedLengths = new int[INITIAL_INDEX_CAPACITY];
+		this.numberOfIndexRecords = 0;
+		this.numberOfUnflushedLists = 0;
+		this.encodedBytes = new byte[0];
+		readIndex();
+		listFollowerFiles();
+		resolveLatestLists();
+
+	}
+
+	/**
+	 * @return number of Twitter IDs with a follower list, those in segments first followed by those in separate files
+	 */
+	public int size() {
+		return this.numberOfIndexedLists + this.followerFileNames.length;
+	}
+
+	/**
+	 * @return number of Twitter IDs whose latest follower list is in the segments
+	 */
+	public int getNumberOfIndexedLists() {
+		return this.numberOfIndexedLists;
+	}
+
+	/**
+	 * @return number of records in the index, counting every list appended to the segments including those replaced by
+	 * a later list of the same Twitter ID
+	 */
+	public int getNumberOfIndexRecords() {
+		return this.numberOfIndexRecords;
+	}
+
+	/**
+	 * @param numberOfIndexRecords number of index records at some earlier time
+	 * @return index of the first list whose index record was appended after that time. Lists from there up to
+	 * getNumberOfIndexedLists are the Twitter IDs with a new latest list since.
+	 */
+	public int getFirstListAfterRecord(int numberOfIndexRecords) {
+		int listIndex = Arrays.binarySearch(this.listRecords, 0, this.numberOfIndexedLists, numberOfIndexRecords);
+		return listIndex >= 0 ? listIndex : -listIndex - 1;
+	}
+
+	/**
+	 * Stat every follower file of the one file per Twitter ID layout the first time it is asked for
+	 * @return hash of the name, length and modification time of every follower file in the folder, which changes when
+	 * one is added, removed or rewritten
+	 */
+	public synchronized long getFollowerFilesFingerprint() {
+
+		if (this.followerFilesFingerprint == 0) {
+			long fingerprint = this.allFollowerFileNames.length;
+			for (String fileName : this.allFollowerFileNames) {
+				File followerFile = new File(this.followersFolder, fileName);
+				long fileBits = (fileName.hashCode() * 31L + followerFile.length()) * 31L + followerFile.lastModified();
+				//Added up so that the order the files are listed in does not matter
+				fingerprint += fileBits * 0x9E3779B97F4A7C15L ^ fileBits >>> 29;
+			}
+			this.followerFilesFingerprint = fingerprint == 0 ? 1 : fingerprint;
+		}
+		return this.followerFilesFingerprint;
+
+	}
+
+	/**
+	 * @return last modification time of the folder when the storage was opened
+	 */
+	public long getLastModified() {
+		return this.lastModified;
+	}
+
+	/**
+	 * @param listIndex
+	 * @return Twitter ID whose followers are in the list
+	 */
+	public long getTwitterId(int listIndex) {
+		return listIndex < this.numberOfIndexedLists ? this.indexedTwitterIds[this.listRecords[listIndex]] : this.followerFileTwitterIds[listIndex - this.numberOfIndexedLists];
+	}
+
+	/**
+	 * @return Twitter ID of every stored follower list
+	 */
+	public TwitterIdBuffer getTwitterIds() {
+		TwitterIdBuffer twitterIds = new TwitterIdBuffer(size());
+		for (int listIndex = 0; listIndex < size(); ++listIndex) {
+			twitterIds.add(getTwitterId(listIndex));
+		}
+		return twitterIds;
+	}
+
+	/**
+	 * @param listIndex
+	 * @return true if the list is held in a file of its own rather than in a segment
+	 */
+	public boolean isSeparateFile(int listIndex) {
+		return listIndex >= this.numberOfIndexedLists;
+	}
+
+	/**
+	 * @param listIndex
+	 * @return file holding the list on its own
+	 */
+	public File getSeparateFile(int listIndex) {
+		return new File(this.followersFolder, this.followerFileNames[listIndex - this.numberOfIndexedLists]);
+	}
+
+	/**
+	 * @return reader for use by one thread
+	 */
+	public Reader newReader() {
+		return this.new Reader();
+	}
+
+	/**
+	 * Append the follower list to the current segment. Its index record is written by the next flush. The list is read
+	 * by storages opened after that.
+	 * @param twitterId
+	 * @param followerIds
+	 * @throws IOException
+	 */
+	public synchronized void append(long twitterId, TwitterIdBuffer followerIds) throws IOException {
+
+		int maximumLength = BinaryTwitterIdFormat.HEADER_SIZE + followerIds.size() * BinaryTwitterIdFormat.MAXIMUM_VARINT_SIZE;
+		if (this.encodedBytes.length < maximumLength) {
+			this.encodedBytes = new byte[Math.max(maximumLength, this.encodedBytes.length * 2)];
+		}
+		int encodedLength = BinaryTwitterIdFormat.encode(followerIds, this.encodedBytes);
+
+		if (this.segmentChannel == null) {
+			openForAppending();
+		}
+		if (this.writeOffset > 0 && this.writeOffset + encodedLength > MAXIMUM_SEGMENT_SIZE) {
+			openSegment(this.writeSegment + 1, 0);
+		}
+
+		ByteBuffer encodedBuffer = ByteBuffer.wrap(this.encodedBytes, 0, encodedLength);
+		while (encodedBuffer.hasRemaining()) {
+			this.segmentChannel.write(encodedBuffer, this.writeOffset + encodedBuffer.position());
+		}
+		addIndexEntry(twitterId, this.writeSegment, this.writeOffset, encodedLength);
+		this.writeOffset += encodedLength;
+		++this.numberOfUnflushedLists;
+
+	}
+
+	/**
+	 * Make the appended lists durable and then write their index records
+	 * @throws IOException
+	 */
+	public synchronized void flush() throws IOException {
+
+		if (this.numberOfUnflushedLists == 0) {
+			return;
+		}
+		this.segmentChannel.force(false);
+
+		ByteBuffer indexRecords = ByteBuffer.allocate(this.numberOfUnflushedLists * INDEX_RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		for (int record = this.numberOfIndexRecords - this.numberOfUnflushedLists; record < this.numberOfIndexRecords; ++record) {
+			indexRecords.putLong(this.indexedTwitterIds[record]);
+			indexRecords.putInt(this.indexedSegments[record]);
+			indexRecords.putInt(this.indexedLengths[record]);
+			indexRecords.putLong(this.indexedOffsets[record]);
+		}
+		indexRecords.flip();
+		long indexPosition = INDEX_HEADER_SIZE + (long) (this.numberOfIndexRecords - this.numberOfUnflushedLists) * INDEX_RECORD_SIZE;
+		while (indexRecords.hasRemaining()) {
+			this.indexChannel.write(indexRecords, indexPosition + indexRecords.position());
+		}
+		this.indexChannel.force(false);
+		this.numberOfUnflushedLists = 0;
+
+	}
+
+	public synchronized void close() throws IOException {
+
+		flush();
+		if (this.segmentChannel != null) {
+			this.segmentChannel.close();
+			this.segmentChannel = null;
+		}
+		if (this.indexChannel != null) {
+			this.indexChannel.close();
+			this.indexChannel = null;
+		}
+
+	}
+
+	/**
+	 * @param followersFolder
+	 * @return number of follower lists, counted without reading the index and so including replaced lists
+	 */
+	public static int getNumberOfLists(String followersFolder) {
+
+		File indexFile = new File(followersFolder, INDEX_FILE);
+		int numberOfLists = indexFile.isFile() ? (int) Math.max((indexFile.length() - INDEX_HEADER_SIZE) / INDEX_RECORD_SIZE, 0) : 0;
+		String[] fileNames = new File(followersFolder).list();
+		if (fileNames != null) {
+			for (String fileName : fileNames) {
+				if (isFollowerFile(fileName)) {
+					++numberOfLists;
+				}
+			}
+		}
+		return numberOfLists;
+
+	}
+
+	/**
+	 * @param followersFolder
+	 * @return last time a follower file was added to the folder or the index was written
+	 */
+	public static long getLastModified(String followersFolder) {
+		return Math.max(new File(followersFolder).lastModified(), new File(followersFolder, INDEX_FILE).lastModified());
+	}
+
+	/**
+	 * Read the whole index, dropping a record only partly written before a crash
+	 * @throws IOException
+	 */
+	private void readIndex() throws IOException {
+
+		File indexFile = new File(this.followersFolder, INDEX_FILE);
+		if (!indexFile.isFile()) {
+			return;
+		}
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(indexFile, "r");
+		try {
+			FileChannel fileChannel = randomAccessFile.getChannel();
+			ByteBuffer index = ByteBuffer.allocate(1024 * INDEX_RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			index.limit(INDEX_HEADER_SIZE);
+			readFully(fileChannel, index, 0);
+			for (int magicIndex = 0; magicIndex < INDEX_MAGIC.length; ++magicIndex) {
+				if (index.position() < INDEX_HEADER_SIZE || index.get(magicIndex) != INDEX_MAGIC[magicIndex]) {
+					throw new IOException("Not a follower index " + indexFile.getPath());
+				}
+			}
+			if (index.getInt(4) != INDEX_VERSION) {
+				throw new IOException("Unsupported follower index version " + index.getInt(4));
+			}
+
+			long position = INDEX_HEADER_SIZE;
+			long numberOfRecords = (fileChannel.size() - INDEX_HEADER_SIZE) / INDEX_RECORD_SIZE;
+			for (long recordsRead = 0; recordsRead < numberOfRecords;) {
+				index.clear();
+				index.limit((int) Math.min(index.capacity() / INDEX_RECORD_SIZE, numberOfRecords - recordsRead) * INDEX_RECORD_SIZE);
+				readFully(fileChannel, index, position);
+				position += index.position();
+				index.flip();
+				while (index.hasRemaining()) {
+					long twitterId = index.getLong();
+					int segment = index.getInt();
+					int length = index.getInt();
+					addIndexEntry(twitterId, segment, index.getLong(), length);
+					++recordsRead;
+				}
+			}
+		} finally {
+			randomAccessFile.close();
+		}
+
+	}
+
+	/**
+	 * List the follower files of the one file per Twitter ID layout
+	 */
+	private void listFollowerFiles() {
+
+		String[] fileNames = this.followersFolder.list();
+		this.followerFileNames = new String[fileNames == null ? 0 : fileNames.length];
+		this.followerFileTwitterIds = new long[this.followerFileNames.length];
+		int numberOfFollowerFiles = 0;
+		for (int fileIndex = 0; fileIndex < this.followerFileNames.length; ++fileIndex) {
+			if (!isFollowerFile(fileNames[fileIndex])) {
+				continue;
+			}
+			try {
+				//File name will consist of numeric twitter id followed by the extension
+				this.followerFileTwitterIds[numberOfFollowerFiles] = Long.parseLong(fileNames[fileIndex].substring(0, fileNames[fileIndex].indexOf('.')));
+				this.followerFileNames[numberOfFollowerFiles++] = fileNames[fileIndex];
+			} catch (NumberFormatException e) {
+				LOGGER.warn("NumberFormatException thrown while trying to extract Twitter ID from " + fileNames[fileIndex]);
+			}
+		}
+		this.followerFileNames = Arrays.copyOf(this.followerFileNames, numberOfFollowerFiles);
+		this.followerFileTwitterIds = Arrays.copyOf(this.followerFileTwitterIds, numberOfFollowerFiles);
+		this.allFollowerFileNames = this.followerFileNames;
+
+	}
+
+	/**
+	 * Keep only the latest list of every Twitter ID. The last index record of a Twitter ID wins, and its follower files
+	 * only count if it has none, since they come from the older one file per Twitter ID layout. Among several follower
+	 * files of a Twitter ID the one modified last wins.
+	 */
+	private void resolveLatestLists() {
+
+		TwitterIdHashTable latestRecords = new TwitterIdHashTable(this.numberOfIndexRecords, true, TwitterIdHashTable.DEFAULT_MAXIMUM_LOAD_PERCENT);
+		for (int record = 0; record < this.numberOfIndexRecords; ++record) {
+			latestRecords.put(this.indexedTwitterIds[record], record);
+		}
+		this.listRecords = new int[latestRecords.size()];
+		this.numberOfIndexedLists = 0;
+		for (int record = 0; record < this.numberOfIndexRecords; ++record) {
+			if (latestRecords.get(this.indexedTwitterIds[record]) == record) {
+				this.listRecords[this.numberOfIndexedLists++] = record;
+			}
+		}
+
+		TwitterIdHashTable followerFiles = new TwitterIdHashTable(this.allFollowerFileNames.length, true, TwitterIdHashTable.DEFAULT_MAXIMUM_LOAD_PERCENT);
+		String[] latestFileNames = new String[this.allFollowerFileNames.length];
+		long[] latestFileTwitterIds = new long[this.allFollowerFileNames.length];
+		int numberOfFollowerFiles = 0;
+		for (int fileIndex = 0; fileIndex < this.allFollowerFileNames.length; ++fileIndex) {
+			long twitterId = this.followerFileTwitterIds[fileIndex];
+			if (latestRecords.contains(twitterId)) {
+				continue;
+			}
+			int keptIndex = followerFiles.putIfAbsent(twitterId, numberOfFollowerFiles);
+			if (keptIndex == TwitterIdHashTable.NOT_FOUND) {
+				latestFileTwitterIds[numberOfFollowerFiles] = twitterId;
+				latestFileNames[numberOfFollowerFiles++] = this.allFollowerFileNames[fileIndex];
+			} else if (new File(this.followersFolder, this.allFollowerFileNames[fileIndex]).lastModified() > new File(this.followersFolder, latestFileNames[keptIndex]).lastModified()) {
+				latestFileNames[keptIndex] = this.allFollowerFileNames[fileIndex];
+			}
+		}
+		this.followerFileNames = Arrays.copyOf(latestFileNames, numberOfFollowerFiles);
+		this.followerFileTwitterIds = Arrays.copyOf(latestFileTwitterIds, numberOfFollowerFiles);
+
+	}
+
+	/**
+	 * Continue the last segment right after its last indexed list, creating the folder and index if needed
+	 * @throws IOException
+	 */
+	private void openForAppending() throws IOException {
+
+		if (!this.followersFolder.isDirectory() && !this.followersFolder.mkdirs()) {
+			throw new IOException("Could not create followers folder " + this.followersFolder.getPath());
+		}
+
+		this.indexChannel = new RandomAccessFile(new File(this.followersFolder, INDEX_FILE), "rw").getChannel();
+		this.indexChannel.truncate(INDEX_HEADER_SIZE + (long) this.numberOfIndexRecords * INDEX_RECORD_SIZE);
+		if (this.numberOfIndexRecords == 0) {
+			ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.put(INDEX_MAGIC);
+			header.putInt(INDEX_VERSION);
+			header.flip();
+			while (header.hasRemaining()) {
+				this.indexChannel.write(header, header.position());
+			}
+		}
+
+		int lastSegment = 0;
+		for (int record = 0; record < this.numberOfIndexRecords; ++record) {
+			lastSegment = Math.max(lastSegment, this.indexedSegments[record]);
+		}
+		long lastSegmentEnd = 0;
+		for (int record = 0; record < this.numberOfIndexRecords; ++record) {
+			if (this.indexedSegments[record] == lastSegment) {
+				lastSegmentEnd = Math.max(lastSegmentEnd, this.indexedOffsets[record] + this.indexedLengths[record]);
+			}
+		}
+		openSegment(lastSegment, lastSegmentEnd);
+
+	}
+
+	private void openSegment(int segment, long offset) throws IOException {
+
+		if (this.segmentChannel != null) {
+			this.segmentChannel.force(false);
+			this.segmentChannel.close();
+		}
+		this.segmentChannel = new RandomAccessFile(getSegmentFile(segment), "rw").getChannel();
+		this.segmentChannel.truncate(offset);
+		this.writeSegment = segment;
+		this.writeOffset = offset;
+
+	}
+
+	private void addIndexEntry(long twitterId, int segment, long offset, int length) {
+
+		if (this.numberOfIndexRecords == this.indexedTwitterIds.length) {
+			int newCapacity = this.indexedTwitterIds.length + (this.indexedTwitterIds.length >> 1) + 1;
+			this.indexedTwitterIds = Arrays.copyOf(this.indexedTwitterIds, newCapacity);
+			this.indexedSegments = Arrays.copyOf(this.indexedSegments, newCapacity);
+			this.indexedOffsets = Arrays.copyOf(this.indexedOffsets, newCapacity);
+			this.indexedLengths = Arrays.copyOf(this.indexedLengths, newCapacity);
+		}
+		this.indexedTwitterIds[this.numberOfIndexRecords] = twitterId;
+		this.indexedSegments[this.numberOfIndexRecords] = segment;
+		this.indexedOffsets[this.numberOfIndexRecords] = offset;
+		this.indexedLengths[this.numberOfIndexRecords] = length;
+		++this.numberOfIndexRecords;
+
+	}
+
+	private File getSegmentFile(int segment) {
+		return new File(this.followersFolder, SEGMENT_FILE_PREFIX + String.format("%06d", segment) + SEGMENT_FILE_EXTENSION);
+	}
+
+	private static boolean isFollowerFile(String fileName) {
+		return fileName.endsWith(TEXT_FILE_EXTENSION) || fileName.endsWith(BinaryTwitterIdFormat.FILE_EXTENSION);
+	}
+
+	private static void readFully(FileChannel fileChannel, ByteBuffer bytes, long position) throws IOException {
+		while (bytes.hasRemaining()) {
+			if (fileChannel.read(bytes, position + bytes.position()) < 0) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Reads follower lists from the storage. The read buffers are reused from list to list, so one reader should not be
+	 * shared between threads.
+	 *
+	 */
+	public class Reader {
+
+		private TwitterIdFileReader twitterIdFileReader;
+		private byte[] readBytes;
+		private RandomAccessFile segmentFile;
+		private int openSegment;
+
+		public Reader() {
+			this.twitterIdFileReader = new TwitterIdFileReader();
+			this.readBytes = new byte[TwitterIdFileReader.READ_BUFFER_SIZE];
+			this.openSegment = -1;
+		}
+
+		/**
+		 * Append the followers in the list to the buffer
+		 * @param listIndex
+		 * @param followerIds
+		 * @throws IOException if the list cannot be read or is malformed
+		 * @throws NumberFormatException if a text follower file holds anything other than decimal IDs
+		 */
+		public void readFollowers(int listIndex, TwitterIdBuffer followerIds) throws IOException {
+
+			if (isSeparateFile(listIndex)) {
+				this.twitterIdFileReader.readTwitterIds(getSeparateFile(listIndex).getPath(), followerIds);
+				return;
+			}
+
+			int record = listRecords[listIndex];
+			int segment = indexedSegments[record], length = indexedLengths[record];
+			if (segment != this.openSegment) {
+				close();
+				this.segmentFile = new RandomAccessFile(getSegmentFile(segment), "r");
+				this.openSegment = segment;
+			}
+			if (this.readBytes.length < length) {
+				this.readBytes = new byte[Math.max(length, this.readBytes.length * 2)];
+			}
+			ByteBuffer listBytes = ByteBuffer.wrap(this.readBytes, 0, length);
+			readFully(this.segmentFile.getChannel(), listBytes, indexedOffsets[record]);
+			if (listBytes.hasRemaining() || !BinaryTwitterIdFormat.hasMagic(this.readBytes, length)) {
+				throw new IOException("Follower list of Twitter ID " + indexedTwitterIds[record] + " in segment " + segment + " is damaged");
+			}
+
+			BinaryTwitterIdFormat.Decoder decoder = new BinaryTwitterIdFormat.Decoder(BinaryTwitterIdFormat.readCount(this.readBytes, length));
+			decoder.decode(this.readBytes, BinaryTwitterIdFormat.HEADER_SIZE, length - BinaryTwitterIdFormat.HEADER_SIZE, followerIds);
+			decoder.finish();
+
+		}
+
+		public void close() throws IOException {
+			if (this.segmentFile != null) {
+				this.segmentFile.close();
+				this.segmentFile = null;
+				this.openSegment = -1;
+			}
+		}
+
+	}
+
+}
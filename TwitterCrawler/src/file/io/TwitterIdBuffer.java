@@ -0,0 +1,71 @@
+package file.io;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of Twitter IDs held in a primitive long array
+ *
+ */
+public class TwitterIdBuffer {
+
+	public static final int DEFAULT_INITIAL_CAPACITY = 256;
+
+	private long[] twitterIds;
+	private int size;
+
+	public TwitterIdBuffer() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+
+	public TwitterIdBuffer(int initialCapacity) {
+		this.twitterIds = new long[Math.max(initialCapacity, 1)];
+		this.size = 0;
+	}
+
+	public void add(long twitterId) {
+		ensureCapacity(this.size + 1);
+		this.twitterIds[this.size++] = twitterId;
+	}
+
+	public void addAll(long[] newTwitterIds) {
+		ensureCapacity(this.size + newTwitterIds.length);
+		System.arraycopy(newTwitterIds, 0, this.twitterIds, this.size, newTwitterIds.length);
+		this.size += newTwitterIds.length;
+	}
+
+	public void addAll(TwitterIdBuffer newTwitterIds) {
+		ensureCapacity(this.size + newTwitterIds.size);
+		System.arraycopy(newTwitterIds.twitterIds, 0, this.twitterIds, this.size, newTwitterIds.size);
+		this.size += newTwitterIds.size;
+	}
+
+	public long get(int index) {
+		return this.twitterIds[index];
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Empty the buffer while keeping the allocated capacity for reuse
+	 */
+	public void clear() {
+		this.size = 0;
+	}
+
+	public long[] toArray() {
+		return Arrays.copyOf(this.twitterIds, this.size);
+	}
+
+	private void ensureCapacity(int requiredCapacity) {
+		if (requiredCapacity > this.twitterIds.length) {
+			this.twitterIds = Arrays.copyOf(this.twitterIds, Math.max(requiredCapacity, this.twitterIds.length + (this.twitterIds.length >> 1) + 1));
+		}
+	}
+
+}
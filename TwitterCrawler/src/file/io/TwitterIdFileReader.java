@@ -0,0 +1,101 @@
+package file.io;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads files holding a list of Twitter IDs, either as text with one ID per line or in the binary format. The format is
+ * recognized from the first bytes of the file. Digits are parsed straight from the bytes read, so no String is created
+ * per line. The read buffer is reused from file to file, so one reader should not be shared between threads.
+ *
+ */
+public class TwitterIdFileReader {
+
+	public static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	private byte[] readBuffer;
+
+	public TwitterIdFileReader() {
+		this.readBuffer = new byte[READ_BUFFER_SIZE];
+	}
+
+	/**
+	 * Append the Twitter IDs in the file to the buffer. In text files blank lines and surrounding white space are ignored.
+	 * @param fileName
+	 * @param twitterIds
+	 * @throws IOException if the file cannot be read or a binary file is malformed
+	 * @throws NumberFormatException if a text file holds anything other than decimal IDs, which may have a leading minus sign
+	 * as FileWriter writes negative values with one
+	 */
+	public void readTwitterIds(String fileName, TwitterIdBuffer twitterIds) throws IOException {
+
+		InputStream inputStream = new FileInputStream(fileName);
+		try {
+			//Read at least as much as a binary header before deciding on the format
+			int bytesRead = 0, readResult = 0;
+			while (bytesRead < BinaryTwitterIdFormat.HEADER_SIZE && (readResult = inputStream.read(this.readBuffer, bytesRead, this.readBuffer.length - bytesRead)) > 0) {
+				bytesRead += readResult;
+			}
+			if (BinaryTwitterIdFormat.hasMagic(this.readBuffer, bytesRead)) {
+				readBinaryTwitterIds(inputStream, bytesRead, twitterIds);
+			} else {
+				readTextTwitterIds(fileName, inputStream, bytesRead, twitterIds);
+			}
+		} finally {
+			inputStream.close();
+		}
+
+	}
+
+	private void readBinaryTwitterIds(InputStream inputStream, int bytesRead, TwitterIdBuffer twitterIds) throws IOException {
+
+		BinaryTwitterIdFormat.Decoder decoder = new BinaryTwitterIdFormat.Decoder(BinaryTwitterIdFormat.readCount(this.readBuffer, bytesRead));
+		decoder.decode(this.readBuffer, BinaryTwitterIdFormat.HEADER_SIZE, bytesRead - BinaryTwitterIdFormat.HEADER_SIZE, twitterIds);
+		while ((bytesRead = inputStream.read(this.readBuffer)) > 0) {
+			decoder.decode(this.readBuffer, 0, bytesRead, twitterIds);
+		}
+		decoder.finish();
+
+	}
+
+	private void readTextTwitterIds(String fileName, InputStream inputStream, int bytesRead, TwitterIdBuffer twitterIds) throws IOException {
+
+		//Digits are added up as a negative number, as Long.parseLong does, so that Long.MIN_VALUE is read as well
+		long negativeTwitterId = 0;
+		boolean negative = false;
+		boolean digitsFound = false;
+		do {
+			for (int bufferIndex = 0; bufferIndex < bytesRead; ++bufferIndex) {
+				byte character = this.readBuffer[bufferIndex];
+				if (character >= '0' && character <= '9') {
+					long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+					if (negativeTwitterId < limit / 10 || negativeTwitterId * 10 < limit + (character - '0')) {
+						throw new NumberFormatException("Twitter ID out of range in file " + fileName);
+					}
+					negativeTwitterId = negativeTwitterId * 10 - (character - '0');
+					digitsFound = true;
+				} else if (character == '-' && !negative && !digitsFound) {
+					negative = true;
+				} else if ((character == '\n' || character == '\r' || character == ' ' || character == '\t') && (digitsFound || !negative)) {
+					if (digitsFound) {
+						twitterIds.add(negative ? negativeTwitterId : -negativeTwitterId);
+						negativeTwitterId = 0;
+						negative = false;
+						digitsFound = false;
+					}
+				} else {
+					throw new NumberFormatException("Unexpected character '" + (char) character + "' in file " + fileName);
+				}
+			}
+		} while ((bytesRead = inputStream.read(this.readBuffer)) > 0);
+		if (negative && !digitsFound) {
+			throw new NumberFormatException("Unexpected character '-' in file " + fileName);
+		}
+		if (digitsFound) {
+			twitterIds.add(negative ? negativeTwitterId : -negativeTwitterId);
+		}
+
+	}
+
+}
@@ -0,0 +1,180 @@
+package file.io;
+
+/**
+ * Open addressing hash table keyed by Twitter ID, held in primitive arrays so that each ID costs a few slots of eight
+ * bytes rather than a boxed Long and a hash map entry. The table can carry an int value for every Twitter ID, or be
+ * created without values to serve as a set. Zero marks an empty slot, so the Twitter ID 0 is kept outside the table.
+ *
+ * This is the one Twitter ID hash table of the crawler and the ranker, shared by the seen set of the crawl frontier, the
+ * index of the follower storage and the matrix index dictionary.
+ *
+ */
+public class TwitterIdHashTable {
+
+	public static final int NOT_FOUND = -1;
+	public static final int DEFAULT_MAXIMUM_LOAD_PERCENT = 75;
+
+	private static final long EMPTY_SLOT = 0;
+
+	private long[] slotTwitterIds;
+	private int[] slotValues;
+	private int slotMask;
+	private int maximumLoadPercent;
+	private boolean hasValues;
+	private boolean containsEmptySlotValue;
+	private int emptySlotValue;
+	private int size;
+
+	/**
+	 * @param expectedSize
+	 * @param hasValues false to keep no values, for a set
+	 * @param maximumLoadPercent how full the table may get before it is doubled. Linear probing is fastest below half full
+	 * and still handles three quarters well.
+	 */
+	public TwitterIdHashTable(int expectedSize, boolean hasValues, int maximumLoadPercent) {
+		this.hasValues = hasValues;
+		this.maximumLoadPercent = maximumLoadPercent;
+		this.containsEmptySlotValue = false;
+		this.size = 0;
+		allocateSlots(getSlotCapacity(expectedSize));
+	}
+
+	/**
+	 * @param twitterId
+	 * @return value of the Twitter ID, 0 for a Twitter ID of a set, or NOT_FOUND if it is not in the table
+	 */
+	public int get(long twitterId) {
+
+		if (twitterId == EMPTY_SLOT) {
+			return this.containsEmptySlotValue ? this.emptySlotValue : NOT_FOUND;
+		}
+		int slot = findSlot(twitterId);
+		if (this.slotTwitterIds[slot] == EMPTY_SLOT) {
+			return NOT_FOUND;
+		}
+		return this.hasValues ? this.slotValues[slot] : 0;
+
+	}
+
+	public boolean contains(long twitterId) {
+		return get(twitterId) != NOT_FOUND;
+	}
+
+	/**
+	 * Add the Twitter ID with the value unless it is already present
+	 * @param twitterId
+	 * @param value ignored by a set
+	 * @return value already held for the Twitter ID, or NOT_FOUND if it has been added
+	 */
+	public int putIfAbsent(long twitterId, int value) {
+
+		if (twitterId == EMPTY_SLOT) {
+			if (this.containsEmptySlotValue) {
+				return this.emptySlotValue;
+			}
+			this.containsEmptySlotValue = true;
+			this.emptySlotValue = this.hasValues ? value : 0;
+			++this.size;
+			return NOT_FOUND;
+		}
+
+		int slot = findSlot(twitterId);
+		if (this.slotTwitterIds[slot] != EMPTY_SLOT) {
+			return this.hasValues ? this.slotValues[slot] : 0;
+		}
+		this.slotTwitterIds[slot] = twitterId;
+		if (this.hasValues) {
+			this.slotValues[slot] = value;
+		}
+		++this.size;
+
+		if (this.size * 100L > this.slotTwitterIds.length * (long) this.maximumLoadPercent) {
+			rehash(this.slotTwitterIds.length * 2);
+		}
+		return NOT_FOUND;
+
+	}
+
+	/**
+	 * Add the Twitter ID or replace its value
+	 * @param twitterId
+	 * @param value
+	 */
+	public void put(long twitterId, int value) {
+
+		if (putIfAbsent(twitterId, value) == NOT_FOUND || !this.hasValues) {
+			return;
+		}
+		if (twitterId == EMPTY_SLOT) {
+			this.emptySlotValue = value;
+		} else {
+			this.slotValues[findSlot(twitterId)] = value;
+		}
+
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Probe from the home slot of the Twitter ID until the ID or an empty slot is found
+	 * @param twitterId
+	 * @return slot holding the Twitter ID, or the empty slot where it would be stored
+	 */
+	private int findSlot(long twitterId) {
+
+		int slot = hash(twitterId) & this.slotMask;
+		while (this.slotTwitterIds[slot] != EMPTY_SLOT && this.slotTwitterIds[slot] != twitterId) {
+			slot = (slot + 1) & this.slotMask;
+		}
+		return slot;
+
+	}
+
+	private void rehash(int newSlotCapacity) {
+
+		long[] oldSlotTwitterIds = this.slotTwitterIds;
+		int[] oldSlotValues = this.slotValues;
+		allocateSlots(newSlotCapacity);
+		for (int oldSlot = 0; oldSlot < oldSlotTwitterIds.length; ++oldSlot) {
+			if (oldSlotTwitterIds[oldSlot] != EMPTY_SLOT) {
+				int slot = findSlot(oldSlotTwitterIds[oldSlot]);
+				this.slotTwitterIds[slot] = oldSlotTwitterIds[oldSlot];
+				if (this.hasValues) {
+					this.slotValues[slot] = oldSlotValues[oldSlot];
+				}
+			}
+		}
+
+	}
+
+	private void allocateSlots(int slotCapacity) {
+		this.slotTwitterIds = new long[slotCapacity];
+		this.slotValues = this.hasValues ? new int[slotCapacity] : null;
+		this.slotMask = slotCapacity - 1;
+	}
+
+	/**
+	 * @param expectedSize
+	 * @return smallest power of two that keeps the table within the maximum load
+	 */
+	private int getSlotCapacity(int expectedSize) {
+		int slotCapacity = 2;
+		while (slotCapacity * (long) this.maximumLoadPercent < expectedSize * 100L) {
+			slotCapacity <<= 1;
+		}
+		return slotCapacity;
+	}
+
+	/**
+	 * Spread the bits of the ID so that sequential IDs do not cluster in the table
+	 * @param twitterId
+	 * @return
+	 */
+	private static int hash(long twitterId) {
+		long mixedBits = twitterId * 0x9E3779B97F4A7C15L;
+		return (int) (mixedBits ^ (mixedBits >>> 32));
+	}
+
+}
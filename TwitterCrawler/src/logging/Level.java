@@ -0,0 +1,9 @@
+package logging;
+
+/**
+ * Severity of a log message, lowest first. WARN and ERROR messages go to standard error, the others to standard output.
+ *
+ */
+public enum Level {
+	DEBUG, INFO, WARN, ERROR
+}
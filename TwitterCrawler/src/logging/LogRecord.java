@@ -0,0 +1,44 @@
+package logging;
+
+/**
+ * A log message waiting in the ring buffer. Only the time is taken on the logging thread, the line is put together by
+ * the log writer.
+ *
+ */
+class LogRecord {
+
+	private long timeMillis;
+	private Level level;
+	private String loggerName;
+	private String message;
+	private Throwable throwable;
+
+	public LogRecord(long timeMillis, Level level, String loggerName, String message, Throwable throwable) {
+		this.timeMillis = timeMillis;
+		this.level = level;
+		this.loggerName = loggerName;
+		this.message = message;
+		this.throwable = throwable;
+	}
+
+	public long getTimeMillis() {
+		return this.timeMillis;
+	}
+
+	public Level getLevel() {
+		return this.level;
+	}
+
+	public String getLoggerName() {
+		return this.loggerName;
+	}
+
+	public String getMessage() {
+		return this.message;
+	}
+
+	public Throwable getThrowable() {
+		return this.throwable;
+	}
+
+}
@@ -0,0 +1,86 @@
+package logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded ring of log records written by any number of threads and read by the log writer alone. Every slot carries a
+ * sequence number telling whether it is free for the next write or holds a record for the next read, so a writer only
+ * has to claim a position with a compare and set. A writer finding the ring full gets false back instead of waiting.
+ *
+ */
+class LogRingBuffer {
+
+	private AtomicReferenceArray<LogRecord> records;
+	private AtomicLongArray sequences;
+	private int mask;
+	private AtomicLong writePosition;
+	//Only read and changed by the log writer thread
+	private long readPosition;
+
+	/**
+	 * @param capacity rounded up to a power of two
+	 */
+	public LogRingBuffer(int capacity) {
+
+		int ringSize = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		this.records = new AtomicReferenceArray<LogRecord>(ringSize);
+		this.sequences = new AtomicLongArray(ringSize);
+		for (int slot = 0; slot < ringSize; ++slot) {
+			this.sequences.set(slot, slot);
+		}
+		this.mask = ringSize - 1;
+		this.writePosition = new AtomicLong();
+		this.readPosition = 0;
+
+	}
+
+	/**
+	 * @param logRecord
+	 * @return false if the ring is full and the record was not added
+	 */
+	public boolean offer(LogRecord logRecord) {
+
+		long position = this.writePosition.get();
+		while (true) {
+			int slot = (int) position & this.mask;
+			long slotAhead = this.sequences.get(slot) - position;
+			if (slotAhead == 0) {
+				if (this.writePosition.compareAndSet(position, position + 1)) {
+					this.records.lazySet(slot, logRecord);
+					//Publishes the record to the reader
+					this.sequences.lazySet(slot, position + 1);
+					return true;
+				}
+				position = this.writePosition.get();
+			} else if (slotAhead < 0) {
+				//The slot still holds a record from one lap back
+				return false;
+			} else {
+				position = this.writePosition.get();
+			}
+		}
+
+	}
+
+	/**
+	 * Must only be called from one thread at a time
+	 * @return the oldest record, or null if the ring is empty
+	 */
+	public LogRecord poll() {
+
+		int slot = (int) this.readPosition & this.mask;
+		if (this.sequences.get(slot) != this.readPosition + 1) {
+			return null;
+		}
+		LogRecord logRecord = this.records.get(slot);
+		this.records.lazySet(slot, null);
+		//Frees the slot for the write one lap ahead
+		this.sequences.lazySet(slot, this.readPosition + this.mask + 1);
+		++this.readPosition;
+		return logRecord;
+
+	}
+
+}
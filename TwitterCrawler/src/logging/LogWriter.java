@@ -0,0 +1,220 @@
+package logging;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes log messages to the console from a thread of its own, so a thread logging never waits on console output.
+ * Messages are handed over through a ring buffer. When the ring is full a message is dropped and counted, and once the
+ * writer has caught up it logs how many messages of each level were lost. Lines waiting in the ring when the process
+ * exits are written by a shutdown hook.
+ *
+ * The level and ring size can be set with the system properties twittercrawler.log.level and
+ * twittercrawler.log.buffer.
+ *
+ */
+public class LogWriter {
+
+	public static final String LEVEL_PROPERTY = "twittercrawler.log.level";
+	public static final String BUFFER_SIZE_PROPERTY = "twittercrawler.log.buffer";
+	public static final Level DEFAULT_LEVEL = Level.INFO;
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+	//Lines written to a stream with one print call
+	public static final int WRITE_BATCH_SIZE = 256;
+
+	private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+	private static final long SHUTDOWN_WAIT_MILLIS = 5000;
+
+	private static LogWriter logWriterInstance = null;
+
+	private volatile Level level;
+	private volatile boolean running;
+	private LogRingBuffer logRingBuffer;
+	private LongAdder[] droppedCounts;
+	private Thread writerThread;
+	private PrintStream outputStream;
+	private PrintStream errorStream;
+
+	private LogWriter(Level level, int bufferSize) {
+
+		this.level = level;
+		this.running = true;
+		this.logRingBuffer = new LogRingBuffer(bufferSize);
+		this.droppedCounts = new LongAdder[Level.values().length];
+		for (int levelIndex = 0; levelIndex < this.droppedCounts.length; ++levelIndex) {
+			this.droppedCounts[levelIndex] = new LongAdder();
+		}
+		this.outputStream = System.out;
+		this.errorStream = System.err;
+
+		this.writerThread = new Thread(this.new RecordWriter(), "log-writer");
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				shutdown();
+			}
+		}, "log-writer-shutdown"));
+
+	}
+
+	public static synchronized LogWriter getInstance() {
+
+		if (logWriterInstance == null) {
+			Level level = DEFAULT_LEVEL;
+			String levelProperty = System.getProperty(LEVEL_PROPERTY);
+			if (levelProperty != null) {
+				try {
+					level = Level.valueOf(levelProperty.trim().toUpperCase());
+				} catch (IllegalArgumentException e) {
+					System.err.println("Could not parse log level " + levelProperty + ". Logging at level " + DEFAULT_LEVEL);
+				}
+			}
+			logWriterInstance = new LogWriter(level, Integer.getInteger(BUFFER_SIZE_PROPERTY, DEFAULT_BUFFER_SIZE));
+		}
+		return logWriterInstance;
+
+	}
+
+	public Level getLevel() {
+		return this.level;
+	}
+
+	/**
+	 * @param level lowest level written from now on
+	 */
+	public void setLevel(Level level) {
+		this.level = level;
+	}
+
+	/**
+	 * @param level
+	 * @return true if messages at the level are written
+	 */
+	public boolean isEnabled(Level level) {
+		return level.compareTo(this.level) >= 0;
+	}
+
+	/**
+	 * Queue a message for writing. Never blocks, the message is dropped if the ring is full.
+	 * @param level
+	 * @param loggerName
+	 * @param message
+	 * @param throwable may be null
+	 */
+	public void log(Level level, String loggerName, String message, Throwable throwable) {
+
+		if (!isEnabled(level)) {
+			return;
+		}
+		if (!this.logRingBuffer.offer(new LogRecord(System.currentTimeMillis(), level, loggerName, message, throwable))) {
+			this.droppedCounts[level.ordinal()].increment();
+		}
+
+	}
+
+	/**
+	 * Stop the writer thread once it has written everything queued so far
+	 */
+	public void shutdown() {
+
+		this.running = false;
+		LockSupport.unpark(this.writerThread);
+		try {
+			this.writerThread.join(SHUTDOWN_WAIT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+	}
+
+	/**
+	 * Drains the ring in batches until shut down, waiting a little whenever it is empty
+	 *
+	 */
+	class RecordWriter implements Runnable {
+
+		private StringBuilder outputLines = new StringBuilder(16 * 1024);
+		private StringBuilder errorLines = new StringBuilder(1024);
+
+		@Override
+		public void run() {
+
+			while (true) {
+				//Read before draining so nothing queued ahead of a shutdown is left behind
+				boolean stopping = !running;
+				int recordCount = 0;
+				LogRecord logRecord;
+				while (recordCount < WRITE_BATCH_SIZE && (logRecord = logRingBuffer.poll()) != null) {
+					appendRecord(logRecord);
+					++recordCount;
+				}
+				if (recordCount < WRITE_BATCH_SIZE) {
+					//Caught up, so this is the time to own up to what was lost
+					appendDroppedCounts();
+				}
+				writeLines();
+				if (recordCount == 0) {
+					if (stopping) {
+						return;
+					}
+					LockSupport.parkNanos(IDLE_WAIT_NANOS);
+				}
+			}
+
+		}
+
+		private void appendRecord(LogRecord logRecord) {
+
+			StringBuilder lines = logRecord.getLevel().compareTo(Level.WARN) >= 0 ? this.errorLines : this.outputLines;
+			lines.append(new Date(logRecord.getTimeMillis())).append(' ').append(logRecord.getLevel()).append(' ');
+			lines.append(logRecord.getLoggerName()).append(": ").append(logRecord.getMessage()).append(System.lineSeparator());
+			if (logRecord.getThrowable() != null) {
+				StringWriter stackTrace = new StringWriter();
+				logRecord.getThrowable().printStackTrace(new PrintWriter(stackTrace));
+				lines.append(stackTrace);
+			}
+
+		}
+
+		private void appendDroppedCounts() {
+
+			long totalDropped = 0;
+			StringBuilder levelCounts = new StringBuilder();
+			for (Level droppedLevel : Level.values()) {
+				long dropped = droppedCounts[droppedLevel.ordinal()].sumThenReset();
+				if (dropped > 0) {
+					levelCounts.append(levelCounts.length() == 0 ? "" : ", ").append(dropped).append(' ').append(droppedLevel);
+					totalDropped += dropped;
+				}
+			}
+			if (totalDropped > 0) {
+				appendRecord(new LogRecord(System.currentTimeMillis(), Level.WARN, "LogWriter", "Log buffer full, dropped " + totalDropped + " messages (" + levelCounts + ")", null));
+			}
+
+		}
+
+		private void writeLines() {
+
+			if (this.outputLines.length() > 0) {
+				outputStream.print(this.outputLines);
+				outputStream.flush();
+				this.outputLines.setLength(0);
+			}
+			if (this.errorLines.length() > 0) {
+				errorStream.print(this.errorLines);
+				errorStream.flush();
+				this.errorLines.setLength(0);
+			}
+
+		}
+
+	}
+
+}
@@ -0,0 +1,59 @@
+package logging;
+
+/**
+ * Named source of log messages, usually one per class kept in a static field. Messages are handed to the LogWriter,
+ * which writes them on its own thread. Building a message that is costly to put together can be skipped by checking
+ * isEnabled first.
+ *
+ */
+public class Logger {
+
+	private String name;
+	private LogWriter logWriter;
+
+	private Logger(String name) {
+		this.name = name;
+		this.logWriter = LogWriter.getInstance();
+	}
+
+	/**
+	 * @param loggingClass
+	 * @return logger named after the class
+	 */
+	public static Logger getLogger(Class<?> loggingClass) {
+		return new Logger(loggingClass.getSimpleName());
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public boolean isEnabled(Level level) {
+		return this.logWriter.isEnabled(level);
+	}
+
+	public void debug(String message) {
+		this.logWriter.log(Level.DEBUG, this.name, message, null);
+	}
+
+	public void info(String message) {
+		this.logWriter.log(Level.INFO, this.name, message, null);
+	}
+
+	public void warn(String message) {
+		this.logWriter.log(Level.WARN, this.name, message, null);
+	}
+
+	public void warn(String message, Throwable throwable) {
+		this.logWriter.log(Level.WARN, this.name, message, throwable);
+	}
+
+	public void error(String message) {
+		this.logWriter.log(Level.ERROR, this.name, message, null);
+	}
+
+	public void error(String message, Throwable throwable) {
+		this.logWriter.log(Level.ERROR, this.name, message, throwable);
+	}
+
+}
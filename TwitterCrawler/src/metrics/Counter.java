@@ -0,0 +1,31 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count of events, such as requests made or Twitter IDs fetched. Threads add to their own cell of a LongAdder, so
+ * counting on a hot path does not contend on one shared value.
+ *
+ */
+public class Counter implements CounterMXBean {
+
+	private LongAdder count;
+
+	public Counter() {
+		this.count = new LongAdder();
+	}
+
+	public void increment() {
+		this.count.increment();
+	}
+
+	public void add(long events) {
+		this.count.add(events);
+	}
+
+	@Override
+	public long getCount() {
+		return this.count.sum();
+	}
+
+}
@@ -0,0 +1,11 @@
+package metrics;
+
+/**
+ * Management interface of a Counter
+ *
+ */
+public interface CounterMXBean {
+
+	long getCount();
+
+}
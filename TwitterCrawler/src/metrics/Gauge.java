@@ -0,0 +1,21 @@
+package metrics;
+
+/**
+ * Last value of a quantity that goes up and down, such as the size of the crawl frontier or the residual of the last
+ * random walk step
+ *
+ */
+public class Gauge implements GaugeMXBean {
+
+	private volatile double value;
+
+	public void set(double value) {
+		this.value = value;
+	}
+
+	@Override
+	public double getValue() {
+		return this.value;
+	}
+
+}
@@ -0,0 +1,11 @@
+package metrics;
+
+/**
+ * Management interface of a Gauge
+ *
+ */
+public interface GaugeMXBean {
+
+	double getValue();
+
+}
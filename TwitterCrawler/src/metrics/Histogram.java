@@ -0,0 +1,164 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Distribution of non negative values, such as the number of followers per list. Values are counted in buckets that
+ * split every power of two into SUB_BUCKETS equal parts, so percentiles are exact to within one part in SUB_BUCKETS and
+ * recording a value is a few shifts and a LongAdder increment, with no locking.
+ *
+ */
+public class Histogram implements HistogramMXBean {
+
+	public static final int SUB_BUCKETS = 8;
+
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int NUMBER_OF_BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private LongAdder[] buckets;
+	private LongAdder count;
+	private LongAdder sum;
+	private LongAccumulator minimum;
+	private LongAccumulator maximum;
+
+	public Histogram() {
+
+		this.buckets = new LongAdder[NUMBER_OF_BUCKETS];
+		for (int bucketIndex = 0; bucketIndex < NUMBER_OF_BUCKETS; ++bucketIndex) {
+			this.buckets[bucketIndex] = new LongAdder();
+		}
+		this.count = new LongAdder();
+		this.sum = new LongAdder();
+		this.minimum = new LongAccumulator(new LongBinaryOperator() {
+			@Override
+			public long applyAsLong(long left, long right) {
+				return Math.min(left, right);
+			}
+		}, Long.MAX_VALUE);
+		this.maximum = new LongAccumulator(new LongBinaryOperator() {
+			@Override
+			public long applyAsLong(long left, long right) {
+				return Math.max(left, right);
+			}
+		}, Long.MIN_VALUE);
+
+	}
+
+	/**
+	 * @param value negative values are recorded as 0
+	 */
+	public void record(long value) {
+
+		value = Math.max(value, 0L);
+		this.buckets[getBucketIndex(value)].increment();
+		this.count.increment();
+		this.sum.add(value);
+		this.minimum.accumulate(value);
+		this.maximum.accumulate(value);
+
+	}
+
+	@Override
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	@Override
+	public long getSum() {
+		return this.sum.sum();
+	}
+
+	@Override
+	public double getMean() {
+		long count = getCount();
+		return count == 0 ? 0.0 : (double) getSum() / count;
+	}
+
+	@Override
+	public long getMinimum() {
+		return getCount() == 0 ? 0 : this.minimum.get();
+	}
+
+	@Override
+	public long getMaximum() {
+		return getCount() == 0 ? 0 : this.maximum.get();
+	}
+
+	@Override
+	public long getMedian() {
+		return getPercentile(50.0);
+	}
+
+	@Override
+	public long get95thPercentile() {
+		return getPercentile(95.0);
+	}
+
+	@Override
+	public long get99thPercentile() {
+		return getPercentile(99.0);
+	}
+
+	/**
+	 * @param percentile
+	 * @return highest value of the bucket holding the percentile, or of the highest value recorded if that is lower
+	 */
+	public long getPercentile(double percentile) {
+
+		long[] bucketCounts = new long[NUMBER_OF_BUCKETS];
+		long totalCount = 0;
+		for (int bucketIndex = 0; bucketIndex < NUMBER_OF_BUCKETS; ++bucketIndex) {
+			bucketCounts[bucketIndex] = this.buckets[bucketIndex].sum();
+			totalCount += bucketCounts[bucketIndex];
+		}
+		if (totalCount == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1L, (long) Math.ceil(totalCount * percentile / 100.0));
+		long countBelow = 0;
+		for (int bucketIndex = 0; bucketIndex < NUMBER_OF_BUCKETS; ++bucketIndex) {
+			countBelow += bucketCounts[bucketIndex];
+			if (countBelow >= rank) {
+				return Math.min(getBucketEnd(bucketIndex) - 1, getMaximum());
+			}
+		}
+		return getMaximum();
+
+	}
+
+	/**
+	 * Values below SUB_BUCKETS get a bucket each. Above that the bucket is given by the position of the highest bit and the
+	 * SUB_BUCKET_BITS bits after it.
+	 * @param value
+	 * @return
+	 */
+	private static int getBucketIndex(long value) {
+
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int highestBit = 63 - Long.numberOfLeadingZeros(value);
+		return (highestBit - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + (int) ((value >>> (highestBit - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+
+	}
+
+	/**
+	 * @param bucketIndex
+	 * @return lowest value of the next bucket
+	 */
+	private static long getBucketEnd(int bucketIndex) {
+
+		if (bucketIndex < SUB_BUCKETS) {
+			return bucketIndex + 1;
+		}
+		int highestBit = bucketIndex / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long bucketStart = (long) (SUB_BUCKETS + bucketIndex % SUB_BUCKETS) << (highestBit - SUB_BUCKET_BITS);
+		long bucketEnd = bucketStart + (1L << (highestBit - SUB_BUCKET_BITS));
+		return bucketEnd < 0 ? Long.MAX_VALUE : bucketEnd;
+
+	}
+
+}
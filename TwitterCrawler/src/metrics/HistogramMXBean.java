@@ -0,0 +1,25 @@
+package metrics;
+
+/**
+ * Management interface of a Histogram
+ *
+ */
+public interface HistogramMXBean {
+
+	long getCount();
+
+	long getSum();
+
+	double getMean();
+
+	long getMinimum();
+
+	long getMaximum();
+
+	long getMedian();
+
+	long get95thPercentile();
+
+	long get99thPercentile();
+
+}
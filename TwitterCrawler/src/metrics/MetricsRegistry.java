@@ -0,0 +1,120 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import logging.Logger;
+
+/**
+ * Named metrics of the process. A metric is created the first time its name is asked for and registered with the
+ * platform MBean server as twittercrawler:type=TYPE,name=NAME, so it can be watched with jconsole or any other JMX
+ * client. Classes look their metrics up once and keep them in fields, leaving only the update on the hot path.
+ *
+ */
+public class MetricsRegistry {
+
+	public static final String JMX_DOMAIN = "twittercrawler";
+
+	private static final Logger LOGGER = Logger.getLogger(MetricsRegistry.class);
+
+	private static MetricsRegistry metricsRegistryInstance = null;
+
+	private ConcurrentSkipListMap<String, Counter> counters;
+	private ConcurrentSkipListMap<String, Gauge> gauges;
+	private ConcurrentSkipListMap<String, Histogram> histograms;
+	private ConcurrentSkipListMap<String, Timer> timers;
+
+	private MetricsRegistry() {
+		this.counters = new ConcurrentSkipListMap<String, Counter>();
+		this.gauges = new ConcurrentSkipListMap<String, Gauge>();
+		this.histograms = new ConcurrentSkipListMap<String, Histogram>();
+		this.timers = new ConcurrentSkipListMap<String, Timer>();
+	}
+
+	public static synchronized MetricsRegistry getInstance() {
+		if (metricsRegistryInstance == null) {
+			metricsRegistryInstance = new MetricsRegistry();
+		}
+		return metricsRegistryInstance;
+	}
+
+	public Counter getCounter(String name) {
+		Counter counter = this.counters.get(name);
+		if (counter == null) {
+			counter = register(this.counters, name, new Counter(), "Counter");
+		}
+		return counter;
+	}
+
+	public Gauge getGauge(String name) {
+		Gauge gauge = this.gauges.get(name);
+		if (gauge == null) {
+			gauge = register(this.gauges, name, new Gauge(), "Gauge");
+		}
+		return gauge;
+	}
+
+	public Histogram getHistogram(String name) {
+		Histogram histogram = this.histograms.get(name);
+		if (histogram == null) {
+			histogram = register(this.histograms, name, new Histogram(), "Histogram");
+		}
+		return histogram;
+	}
+
+	public Timer getTimer(String name) {
+		Timer timer = this.timers.get(name);
+		if (timer == null) {
+			timer = register(this.timers, name, new Timer(), "Timer");
+		}
+		return timer;
+	}
+
+	/**
+	 * @return counters by name
+	 */
+	public SortedMap<String, Counter> getCounters() {
+		return this.counters;
+	}
+
+	public SortedMap<String, Gauge> getGauges() {
+		return this.gauges;
+	}
+
+	public SortedMap<String, Histogram> getHistograms() {
+		return this.histograms;
+	}
+
+	public SortedMap<String, Timer> getTimers() {
+		return this.timers;
+	}
+
+	/**
+	 * Add the metric unless another thread got there first, and register whichever one is kept
+	 * @param metrics
+	 * @param name
+	 * @param newMetric
+	 * @param type
+	 * @return metric kept under the name
+	 */
+	private <T> T register(ConcurrentSkipListMap<String, T> metrics, String name, T newMetric, String type) {
+
+		T metric = metrics.putIfAbsent(name, newMetric);
+		if (metric != null) {
+			return metric;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(newMetric, new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + name));
+		} catch (JMException e) {
+			//The metric still counts, it just cannot be watched over JMX
+			LOGGER.warn("Could not register metric " + name + " with JMX", e);
+		}
+		return newMetric;
+
+	}
+
+}
@@ -0,0 +1,181 @@
+package metrics;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import logging.Logger;
+
+/**
+ * Appends a snapshot of every metric in the registry to a log file at a fixed interval, one JSON object per line:
+ *
+ * {"time":1462600000000,"seconds":10.0,"counters":{"crawler.apiCalls":{"count":120,"rate":1.5}},"gauges":{...},
+ * "histograms":{"crawler.followersPerList":{"count":..,"mean":..,"min":..,"max":..,"p50":..,"p95":..,"p99":..}},
+ * "timers":{"pagerank.stepTime":{"count":..,"rate":..,"totalMillis":..,"meanMillis":..,"maxMillis":..,"p50Millis":..,
+ * "p95Millis":..,"p99Millis":..}}}
+ *
+ * Rates are events per second since the previous line. The reporter runs on a daemon thread and writes a last line
+ * when stopped.
+ *
+ */
+public class MetricsReporter {
+
+	public static final long DEFAULT_INTERVAL_SECONDS = 10;
+
+	private static final Logger LOGGER = Logger.getLogger(MetricsReporter.class);
+
+	private MetricsRegistry metricsRegistry;
+	private String logFile;
+	private long intervalSeconds;
+	private ScheduledExecutorService scheduledExecutorService;
+	private Writer logWriter;
+	//Counts at the previous line, to compute rates from
+	private Map<String, Long> previousCounts;
+	private long previousTimeMillis;
+
+	/**
+	 * @param metricsRegistry
+	 * @param logFile file the lines are appended to
+	 * @param intervalSeconds
+	 */
+	public MetricsReporter(MetricsRegistry metricsRegistry, String logFile, long intervalSeconds) {
+		this.metricsRegistry = metricsRegistry;
+		this.logFile = logFile;
+		this.intervalSeconds = intervalSeconds > 0 ? intervalSeconds : DEFAULT_INTERVAL_SECONDS;
+		this.previousCounts = new HashMap<String, Long>();
+	}
+
+	/**
+	 * Open the log file and start writing a line every interval
+	 * @throws IOException if the log file cannot be opened
+	 */
+	public synchronized void start() throws IOException {
+
+		this.logWriter = new OutputStreamWriter(new FileOutputStream(this.logFile, true), StandardCharsets.UTF_8);
+		this.previousTimeMillis = System.currentTimeMillis();
+		this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "metrics-reporter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.scheduledExecutorService.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				report();
+			}
+		}, this.intervalSeconds, this.intervalSeconds, TimeUnit.SECONDS);
+
+	}
+
+	/**
+	 * Write a last line and close the log file
+	 */
+	public synchronized void stop() {
+
+		if (this.scheduledExecutorService == null) {
+			return;
+		}
+		this.scheduledExecutorService.shutdown();
+		report();
+		try {
+			this.logWriter.close();
+		} catch (IOException e) {
+			LOGGER.error("IOException thrown while closing metrics log " + this.logFile, e);
+		}
+		this.scheduledExecutorService = null;
+
+	}
+
+	/**
+	 * Append a line with the current snapshot
+	 */
+	public synchronized void report() {
+
+		long timeMillis = System.currentTimeMillis();
+		double seconds = Math.max(timeMillis - this.previousTimeMillis, 1L) / 1000.0;
+		this.previousTimeMillis = timeMillis;
+
+		StringBuilder line = new StringBuilder(1024);
+		line.append("{\"time\":").append(timeMillis).append(",\"seconds\":").append(seconds);
+
+		line.append(",\"counters\":{");
+		String separator = "";
+		for (Map.Entry<String, Counter> counter : this.metricsRegistry.getCounters().entrySet()) {
+			long count = counter.getValue().getCount();
+			line.append(separator).append('"').append(counter.getKey()).append("\":{\"count\":").append(count);
+			line.append(",\"rate\":").append(getRate("counter." + counter.getKey(), count, seconds)).append('}');
+			separator = ",";
+		}
+
+		line.append("},\"gauges\":{");
+		separator = "";
+		for (Map.Entry<String, Gauge> gauge : this.metricsRegistry.getGauges().entrySet()) {
+			line.append(separator).append('"').append(gauge.getKey()).append("\":").append(getJsonNumber(gauge.getValue().getValue()));
+			separator = ",";
+		}
+
+		line.append("},\"histograms\":{");
+		separator = "";
+		for (Map.Entry<String, Histogram> histogram : this.metricsRegistry.getHistograms().entrySet()) {
+			Histogram values = histogram.getValue();
+			line.append(separator).append('"').append(histogram.getKey()).append("\":{\"count\":").append(values.getCount());
+			line.append(",\"mean\":").append(getJsonNumber(values.getMean())).append(",\"min\":").append(values.getMinimum());
+			line.append(",\"max\":").append(values.getMaximum()).append(",\"p50\":").append(values.getMedian());
+			line.append(",\"p95\":").append(values.get95thPercentile()).append(",\"p99\":").append(values.get99thPercentile()).append('}');
+			separator = ",";
+		}
+
+		line.append("},\"timers\":{");
+		separator = "";
+		for (Map.Entry<String, Timer> timer : this.metricsRegistry.getTimers().entrySet()) {
+			Timer times = timer.getValue();
+			long count = times.getCount();
+			line.append(separator).append('"').append(timer.getKey()).append("\":{\"count\":").append(count);
+			line.append(",\"rate\":").append(getRate("timer." + timer.getKey(), count, seconds));
+			line.append(",\"totalMillis\":").append(times.getTotalMillis()).append(",\"meanMillis\":").append(times.getMeanMillis());
+			line.append(",\"maxMillis\":").append(times.getMaximumMillis()).append(",\"p50Millis\":").append(times.getMedianMillis());
+			line.append(",\"p95Millis\":").append(times.get95thPercentileMillis()).append(",\"p99Millis\":").append(times.get99thPercentileMillis()).append('}');
+			separator = ",";
+		}
+		line.append("}}").append(System.lineSeparator());
+
+		try {
+			this.logWriter.write(line.toString());
+			this.logWriter.flush();
+		} catch (IOException e) {
+			LOGGER.error("IOException thrown while writing metrics log " + this.logFile, e);
+		}
+
+	}
+
+	/**
+	 * @param key
+	 * @param count
+	 * @param seconds time since the previous count
+	 * @return events per second since the previous count
+	 */
+	private double getRate(String key, long count, double seconds) {
+		Long previousCount = this.previousCounts.put(key, count);
+		return (count - (previousCount == null ? 0L : previousCount)) / seconds;
+	}
+
+	/**
+	 * @param value
+	 * @return the value, or null where JSON has no number for it
+	 */
+	private static String getJsonNumber(double value) {
+		return Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value);
+	}
+
+}
@@ -0,0 +1,82 @@
+package metrics;
+
+/**
+ * Durations of an operation, such as a request or a random walk step, kept in a histogram of nanoseconds:
+ *
+ * long startNanos = timer.start();
+ * ...
+ * timer.stop(startNanos);
+ *
+ */
+public class Timer implements TimerMXBean {
+
+	private static final double NANOS_PER_MILLI = 1e6;
+
+	private Histogram nanos;
+
+	public Timer() {
+		this.nanos = new Histogram();
+	}
+
+	/**
+	 * @return start time to pass to stop
+	 */
+	public long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Record the time since start
+	 * @param startNanos
+	 * @return nanoseconds recorded
+	 */
+	public long stop(long startNanos) {
+		long elapsedNanos = System.nanoTime() - startNanos;
+		this.nanos.record(elapsedNanos);
+		return elapsedNanos;
+	}
+
+	/**
+	 * Record a duration measured elsewhere
+	 * @param elapsedNanos
+	 */
+	public void record(long elapsedNanos) {
+		this.nanos.record(elapsedNanos);
+	}
+
+	@Override
+	public long getCount() {
+		return this.nanos.getCount();
+	}
+
+	@Override
+	public double getTotalMillis() {
+		return this.nanos.getSum() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getMeanMillis() {
+		return this.nanos.getMean() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getMaximumMillis() {
+		return this.nanos.getMaximum() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getMedianMillis() {
+		return this.nanos.getMedian() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double get95thPercentileMillis() {
+		return this.nanos.get95thPercentile() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double get99thPercentileMillis() {
+		return this.nanos.get99thPercentile() / NANOS_PER_MILLI;
+	}
+
+}
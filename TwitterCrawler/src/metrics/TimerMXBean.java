@@ -0,0 +1,23 @@
+package metrics;
+
+/**
+ * Management interface of a Timer, with times in milliseconds
+ *
+ */
+public interface TimerMXBean {
+
+	long getCount();
+
+	double getTotalMillis();
+
+	double getMeanMillis();
+
+	double getMaximumMillis();
+
+	double getMedianMillis();
+
+	double get95thPercentileMillis();
+
+	double get99thPercentileMillis();
+
+}
@@ -0,0 +1,268 @@
+package pagerank;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Square sparse matrix stored in compressed sparse column form. The row numbers of the entries in column c are held in
+ * rowIndices[columnOffsets[c]] to rowIndices[columnOffsets[c + 1] - 1] in ascending order. The index arrays are held in
+ * int buffers so that they can live on the heap or be mapped straight from a graph snapshot file. Entry values are
+ * optional. Until the rows are normalized every stored entry has an implied value of 1.0, and once they are all entries
+ * of a row share the value of that row.
+ *
+ */
+public class CompressedSparseColumnMatrix {
+
+	private int size;
+	private IntBuffer columnOffsets;
+	private IntBuffer rowIndices;
+	private IntBuffer rowCounts;
+	private double[] rowValues;
+
+	/**
+	 * Create the matrix from a buffer of entry coordinates. Duplicate entries are stored only once.
+	 * @param size number of rows and columns
+	 * @param matrixEntries
+	 */
+	public CompressedSparseColumnMatrix(int size, MatrixEntryBuffer matrixEntries) {
+
+		this.size = size;
+		int[] columnOffsets = new int[size + 1];
+
+		//Count entries per column and turn the counts into column start offsets
+		int numberOfEntries = matrixEntries.size();
+		for (int entryIndex = 0; entryIndex < numberOfEntries; ++entryIndex) {
+			++columnOffsets[matrixEntries.getColumnNumber(entryIndex) + 1];
+		}
+		for (int columnIndex = 0; columnIndex < size; ++columnIndex) {
+			columnOffsets[columnIndex + 1] += columnOffsets[columnIndex];
+		}
+
+		//Scatter row numbers into their columns
+		int[] rowIndices = new int[numberOfEntries];
+		int[] nextPositionInColumn = Arrays.copyOf(columnOffsets, size);
+		for (int entryIndex = 0; entryIndex < numberOfEntries; ++entryIndex) {
+			rowIndices[nextPositionInColumn[matrixEntries.getColumnNumber(entryIndex)]++] = matrixEntries.getRowNumber(entryIndex);
+		}
+
+		rowIndices = compactColumns(columnOffsets, rowIndices);
+		this.columnOffsets = IntBuffer.wrap(columnOffsets);
+		this.rowIndices = IntBuffer.wrap(rowIndices);
+		this.rowCounts = IntBuffer.wrap(countRowEntries(rowIndices));
+
+	}
+
+	/**
+	 * Create the matrix over index buffers that are already in compressed sparse column form, such as those mapped from a
+	 * graph snapshot
+	 * @param size number of rows and columns
+	 * @param columnOffsets
+	 * @param rowIndices
+	 * @param rowCounts
+	 */
+	public CompressedSparseColumnMatrix(int size, IntBuffer columnOffsets, IntBuffer rowIndices, IntBuffer rowCounts) {
+		this.size = size;
+		this.columnOffsets = columnOffsets;
+		this.rowIndices = rowIndices;
+		this.rowCounts = rowCounts;
+	}
+
+	/**
+	 * Sort the row numbers within each column and squeeze out duplicate entries
+	 * @param columnOffsets
+	 * @param rowIndices
+	 * @return row numbers without duplicates
+	 */
+	private int[] compactColumns(int[] columnOffsets, int[] rowIndices) {
+
+		int writePosition = 0, columnStart = 0, columnEnd = 0;
+		for (int columnIndex = 0; columnIndex < this.size; ++columnIndex) {
+			columnStart = columnOffsets[columnIndex];
+			columnEnd = columnOffsets[columnIndex + 1];
+			Arrays.sort(rowIndices, columnStart, columnEnd);
+			columnOffsets[columnIndex] = writePosition;
+			for (int readPosition = columnStart; readPosition < columnEnd; ++readPosition) {
+				if (readPosition == columnStart || rowIndices[readPosition] != rowIndices[readPosition - 1]) {
+					rowIndices[writePosition++] = rowIndices[readPosition];
+				}
+			}
+		}
+		columnOffsets[this.size] = writePosition;
+
+		return writePosition == rowIndices.length ? rowIndices : Arrays.copyOf(rowIndices, writePosition);
+
+	}
+
+	/**
+	 * Keep track of the number of entries in each matrix row. Will be used as a denominator to compute probability.
+	 * @param rowIndices
+	 * @return
+	 */
+	private int[] countRowEntries(int[] rowIndices) {
+
+		int[] rowCounts = new int[this.size];
+		for (int rowIndex : rowIndices) {
+			++rowCounts[rowIndex];
+		}
+		return rowCounts;
+
+	}
+
+	/**
+	 * Set every entry to the row probability divided by the number of entries in its row
+	 * @param rowProbability total probability to be shared by the entries of each non empty row
+	 */
+	public void normalizeRows(double rowProbability) {
+
+		this.rowValues = new double[this.size];
+		for (int rowIndex = 0; rowIndex < this.size; ++rowIndex) {
+			int rowCount = this.rowCounts.get(rowIndex);
+			this.rowValues[rowIndex] = rowCount == 0 ? 0.0 : rowProbability / rowCount;
+		}
+
+	}
+
+	/**
+	 * Multiply a row vector with one column of the matrix. Only the entries stored in the column are visited.
+	 * @param vector
+	 * @param columnNumber
+	 * @return dot product of the vector and the column
+	 */
+	public double multiplyWithColumn(double[] vector, int columnNumber) {
+
+		double dotProduct = 0.0;
+		int columnEnd = this.columnOffsets.get(columnNumber + 1), rowIndex = 0;
+		if (this.rowValues == null) {
+			for (int entryPosition = this.columnOffsets.get(columnNumber); entryPosition < columnEnd; ++entryPosition) {
+				dotProduct += vector[this.rowIndices.get(entryPosition)];
+			}
+		} else {
+			for (int entryPosition = this.columnOffsets.get(columnNumber); entryPosition < columnEnd; ++entryPosition) {
+				rowIndex = this.rowIndices.get(entryPosition);
+				dotProduct += vector[rowIndex] * this.rowValues[rowIndex];
+			}
+		}
+		return dotProduct;
+
+	}
+
+	/**
+	 * Multiply a row vector with one column of the matrix, taking the components from updatedStart up to updatedEnd from
+	 * an updated copy of the vector. This is the product of a Gauss-Seidel sweep, where the components already computed in
+	 * the sweep are used in place of the old ones.
+	 * @param vector
+	 * @param updatedVector
+	 * @param updatedStart
+	 * @param updatedEnd
+	 * @param columnNumber
+	 * @return dot product of the partly updated vector and the column
+	 */
+	public double multiplyWithColumn(double[] vector, double[] updatedVector, int updatedStart, int updatedEnd, int columnNumber) {
+
+		double dotProduct = 0.0;
+		int columnEnd = this.columnOffsets.get(columnNumber + 1), rowIndex = 0;
+		for (int entryPosition = this.columnOffsets.get(columnNumber); entryPosition < columnEnd; ++entryPosition) {
+			rowIndex = this.rowIndices.get(entryPosition);
+			double component = rowIndex >= updatedStart && rowIndex < updatedEnd ? updatedVector[rowIndex] : vector[rowIndex];
+			dotProduct += this.rowValues == null ? component : component * this.rowValues[rowIndex];
+		}
+		return dotProduct;
+
+	}
+
+	/**
+	 * Multiply several row vectors with one column of the matrix, visiting the entries of the column only once for all of
+	 * them. The vectors are interleaved, so component i of vector v is at vectors[i * numberOfVectors + v].
+	 * @param vectors
+	 * @param numberOfVectors
+	 * @param columnNumber
+	 * @param products receives the dot product of vector v with the column at products[productsOffset + v]
+	 * @param productsOffset
+	 */
+	public void multiplyWithColumn(double[] vectors, int numberOfVectors, int columnNumber, double[] products, int productsOffset) {
+
+		for (int vectorIndex = 0; vectorIndex < numberOfVectors; ++vectorIndex) {
+			products[productsOffset + vectorIndex] = 0.0;
+		}
+		int columnEnd = this.columnOffsets.get(columnNumber + 1);
+		for (int entryPosition = this.columnOffsets.get(columnNumber); entryPosition < columnEnd; ++entryPosition) {
+			int rowIndex = this.rowIndices.get(entryPosition), rowStart = rowIndex * numberOfVectors;
+			double rowValue = this.rowValues == null ? 1.0 : this.rowValues[rowIndex];
+			for (int vectorIndex = 0; vectorIndex < numberOfVectors; ++vectorIndex) {
+				products[productsOffset + vectorIndex] += vectors[rowStart + vectorIndex] * rowValue;
+			}
+		}
+
+	}
+
+	/**
+	 * Split the columns into consecutive ranges holding roughly the same number of entries
+	 * @param numberOfPartitions
+	 * @return range boundaries, range i runs from column boundaries[i] to column boundaries[i + 1]
+	 */
+	public int[] partitionColumnsByEntries(int numberOfPartitions) {
+
+		int[] partitionBoundaries = new int[numberOfPartitions + 1];
+		long entriesPerPartition = Math.max(1L, ((long) getNumberOfEntries() + this.size) / numberOfPartitions);
+		int columnIndex = 0;
+		for (int partitionIndex = 1; partitionIndex < numberOfPartitions; ++partitionIndex) {
+			//Count columns as well as entries so that runs of empty columns are also spread out
+			while (columnIndex < this.size && (long) this.columnOffsets.get(columnIndex) + columnIndex < entriesPerPartition * partitionIndex) {
+				++columnIndex;
+			}
+			partitionBoundaries[partitionIndex] = columnIndex;
+		}
+		partitionBoundaries[numberOfPartitions] = this.size;
+		return partitionBoundaries;
+
+	}
+
+	public int getSize() {
+		return this.size;
+	}
+
+	public int getNumberOfEntries() {
+		return this.columnOffsets.get(this.size);
+	}
+
+	/**
+	 * @param columnNumber
+	 * @return position of the first entry of the column
+	 */
+	public int getColumnStart(int columnNumber) {
+		return this.columnOffsets.get(columnNumber);
+	}
+
+	/**
+	 * @param columnNumber
+	 * @return position one past the last entry of the column
+	 */
+	public int getColumnEnd(int columnNumber) {
+		return this.columnOffsets.get(columnNumber + 1);
+	}
+
+	public int getRowIndex(int entryPosition) {
+		return this.rowIndices.get(entryPosition);
+	}
+
+	public double getValue(int entryPosition) {
+		return this.rowValues == null ? 1.0 : this.rowValues[this.rowIndices.get(entryPosition)];
+	}
+
+	public int getRowCount(int rowNumber) {
+		return this.rowCounts.get(rowNumber);
+	}
+
+	IntBuffer getColumnOffsets() {
+		return this.columnOffsets.duplicate();
+	}
+
+	IntBuffer getRowIndices() {
+		return this.rowIndices.duplicate();
+	}
+
+	IntBuffer getRowCounts() {
+		return this.rowCounts.duplicate();
+	}
+
+}
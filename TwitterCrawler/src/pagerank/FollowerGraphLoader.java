@@ -0,0 +1,268 @@
+package pagerank;
+
+import java.io.IOException;
+import java.util.List;
+
+import file.io.FileWriter;
+import file.io.FollowerStorage;
+import file.io.TwitterIdBuffer;
+import logging.Logger;
+
+/**
+ * Builds the follower graph in a single pass over the follower lists in FollowerStorage. Lists are parsed by a pool of
+ * workers, each collecting its range of lists in a primitive chunk. The chunks are then merged on the calling
+ * thread, where Twitter IDs get matrix indexes as they are first seen and follower links are appended to a primitive
+ * entry buffer. Once all files are merged the indexes are put in ascending Twitter ID order and the entries are
+ * compressed into the transition matrix.
+ *
+ * A graph built earlier, such as a graph snapshot, can instead be extended with just the lists appended since.
+ *
+ */
+public class FollowerGraphLoader {
+
+	private static final Logger LOGGER = Logger.getLogger(FollowerGraphLoader.class);
+
+	private ParallelRangeExecutor parallelRangeExecutor;
+	private TwitterIdDictionary twitterIds;
+	private MatrixEntryBuffer matrixEntries;
+
+	public FollowerGraphLoader() {
+		this(new ParallelRangeExecutor(ParallelRangeExecutor.DEFAULT_THREAD_COUNT));
+	}
+
+	/**
+	 * @param parallelRangeExecutor workers used to parse the follower files
+	 */
+	public FollowerGraphLoader(ParallelRangeExecutor parallelRangeExecutor) {
+		this.parallelRangeExecutor = parallelRangeExecutor;
+		this.twitterIds = new TwitterIdDictionary();
+		this.matrixEntries = new MatrixEntryBuffer();
+	}
+
+	/**
+	 * Read every follower list in the folder once, whether packed in segments or in files of their own. Lists that cannot be
+	 * read or parsed are skipped.
+	 * @param followersFolder
+	 */
+	public void loadFollowersFolder(String followersFolder) {
+
+		if (!new FileWriter().folderExists(followersFolder)) {
+			LOGGER.error("Followers folder " + followersFolder + " not found");
+			return;
+		}
+		FollowerStorage followerStorage;
+		try {
+			followerStorage = new FollowerStorage(followersFolder);
+		} catch (IOException e) {
+			LOGGER.error("IOException thrown while reading the follower index in " + followersFolder, e);
+			return;
+		}
+		loadFollowerLists(followerStorage);
+
+	}
+
+	/**
+	 * Read every follower list in the storage once
+	 * @param followerStorage
+	 */
+	public void loadFollowerLists(FollowerStorage followerStorage) {
+		addFollowerChunks(readFollowerChunks(followerStorage, 0, followerStorage.size()));
+	}
+
+	/**
+	 * Start from a graph built earlier and add the follower lists appended to the segments of the storage since. The
+	 * storage resolves every Twitter ID to its latest list, so only Twitter IDs whose latest list was appended since are
+	 * read, and their column of the earlier graph is dropped. A Twitter ID whose followers were fetched anew thus ends up
+	 * with exactly its last list, whether the earlier column came from a segment or a follower file.
+	 * @param graphTwitterIds Twitter IDs of the earlier graph
+	 * @param graphMatrix matrix of the earlier graph
+	 * @param followerStorage
+	 * @param numberOfIndexRecords number of index records of the segments the earlier graph was built from
+	 * @return number of follower lists read
+	 */
+	public int updateGraph(TwitterIdDictionary graphTwitterIds, CompressedSparseColumnMatrix graphMatrix, FollowerStorage followerStorage, int numberOfIndexRecords) {
+
+		int firstNewListIndex = followerStorage.getFirstListAfterRecord(numberOfIndexRecords);
+		int newListsEnd = followerStorage.getNumberOfIndexedLists();
+		List<TwitterIdBuffer> followerChunks = readFollowerChunks(followerStorage, firstNewListIndex, newListsEnd);
+
+		TwitterIdDictionary replacedTwitterIds = new TwitterIdDictionary(newListsEnd - firstNewListIndex);
+		for (int listIndex = firstNewListIndex; listIndex < newListsEnd; ++listIndex) {
+			replacedTwitterIds.add(followerStorage.getTwitterId(listIndex));
+		}
+		TwitterIdDictionary listTwitterIds = new TwitterIdDictionary(followerStorage.size());
+		for (int listIndex = 0; listIndex < followerStorage.size(); ++listIndex) {
+			listTwitterIds.add(followerStorage.getTwitterId(listIndex));
+		}
+		addGraph(graphTwitterIds, graphMatrix, replacedTwitterIds, listTwitterIds);
+		addFollowerChunks(followerChunks);
+		return newListsEnd - firstNewListIndex;
+
+	}
+
+	/**
+	 * Add the follower links of a graph built earlier, leaving out the columns of the replaced Twitter IDs. A Twitter ID of
+	 * the earlier graph is only kept while it has a list of its own that is not replaced, or still follows someone in the
+	 * graph, as in a graph built from scratch. Replaced Twitter IDs come back with their new list.
+	 * @param graphTwitterIds
+	 * @param graphMatrix
+	 * @param replacedTwitterIds
+	 * @param listTwitterIds Twitter IDs with a follower list in the storage
+	 */
+	private void addGraph(TwitterIdDictionary graphTwitterIds, CompressedSparseColumnMatrix graphMatrix, TwitterIdDictionary replacedTwitterIds, TwitterIdDictionary listTwitterIds) {
+
+		if (this.matrixEntries.size() == 0) {
+			this.matrixEntries = new MatrixEntryBuffer(graphMatrix.getNumberOfEntries() + MatrixEntryBuffer.DEFAULT_INITIAL_CAPACITY);
+		}
+		boolean[] replacedColumns = new boolean[graphTwitterIds.size()];
+		//Links of every follower left once the replaced columns are dropped
+		int[] keptRowCounts = new int[graphTwitterIds.size()];
+		for (int columnNumber = 0; columnNumber < replacedColumns.length; ++columnNumber) {
+			replacedColumns[columnNumber] = replacedTwitterIds.contains(graphTwitterIds.getTwitterId(columnNumber));
+			if (!replacedColumns[columnNumber]) {
+				int columnEnd = graphMatrix.getColumnEnd(columnNumber);
+				for (int entryPosition = graphMatrix.getColumnStart(columnNumber); entryPosition < columnEnd; ++entryPosition) {
+					++keptRowCounts[graphMatrix.getRowIndex(entryPosition)];
+				}
+			}
+		}
+
+		int[] indexes = new int[graphTwitterIds.size()];
+		for (int graphIndex = 0; graphIndex < indexes.length; ++graphIndex) {
+			boolean hasOwnList = !replacedColumns[graphIndex] && listTwitterIds.contains(graphTwitterIds.getTwitterId(graphIndex));
+			indexes[graphIndex] = hasOwnList || keptRowCounts[graphIndex] > 0 ? this.twitterIds.add(graphTwitterIds.getTwitterId(graphIndex)) : TwitterIdDictionary.NOT_FOUND;
+		}
+
+		for (int columnNumber = 0; columnNumber < indexes.length; ++columnNumber) {
+			if (replacedColumns[columnNumber]) {
+				continue;
+			}
+			int columnEnd = graphMatrix.getColumnEnd(columnNumber);
+			for (int entryPosition = graphMatrix.getColumnStart(columnNumber); entryPosition < columnEnd; ++entryPosition) {
+				this.matrixEntries.add(indexes[graphMatrix.getRowIndex(entryPosition)], indexes[columnNumber]);
+			}
+		}
+
+	}
+
+	/**
+	 * Parse a range of follower lists on the workers, one chunk per worker
+	 * @param followerStorage
+	 * @param rangeStart
+	 * @param rangeEnd
+	 * @return
+	 */
+	private List<TwitterIdBuffer> readFollowerChunks(final FollowerStorage followerStorage, final int rangeStart, int rangeEnd) {
+
+		return this.parallelRangeExecutor.run(this.parallelRangeExecutor.partitionEvenly(rangeEnd - rangeStart), new ParallelRangeExecutor.RangeTask<TwitterIdBuffer>() {
+			@Override
+			public TwitterIdBuffer run(int partitionStart, int partitionEnd) {
+				return readFollowerLists(followerStorage, rangeStart + partitionStart, rangeStart + partitionEnd);
+			}
+		});
+
+	}
+
+	/**
+	 * Merge one chunk at a time and let go of it once merged
+	 * @param followerChunks
+	 */
+	private void addFollowerChunks(List<TwitterIdBuffer> followerChunks) {
+
+		for (int chunkIndex = 0; chunkIndex < followerChunks.size(); ++chunkIndex) {
+			addFollowerChunk(followerChunks.get(chunkIndex));
+			followerChunks.set(chunkIndex, null);
+		}
+
+	}
+
+	/**
+	 * Parse a range of follower lists into a chunk. For every list the chunk holds the Twitter ID, the number of followers
+	 * and then the followers themselves.
+	 * @param followerStorage
+	 * @param rangeStart
+	 * @param rangeEnd
+	 * @return
+	 */
+	private TwitterIdBuffer readFollowerLists(FollowerStorage followerStorage, int rangeStart, int rangeEnd) {
+
+		FollowerStorage.Reader followerReader = followerStorage.newReader();
+		TwitterIdBuffer followerIds = new TwitterIdBuffer();
+		TwitterIdBuffer followerChunk = new TwitterIdBuffer();
+
+		try {
+			for (int listIndex = rangeStart; listIndex < rangeEnd; ++listIndex) {
+				try {
+					followerIds.clear();
+					followerReader.readFollowers(listIndex, followerIds);
+					followerChunk.add(followerStorage.getTwitterId(listIndex));
+					followerChunk.add(followerIds.size());
+					followerChunk.addAll(followerIds);
+				} catch (NumberFormatException e) {
+					LOGGER.warn("NumberFormatException thrown while reading followers of Twitter ID " + followerStorage.getTwitterId(listIndex), e);
+				} catch (IOException e) {
+					LOGGER.warn("IOException thrown while reading followers of Twitter ID " + followerStorage.getTwitterId(listIndex), e);
+				}
+			}
+		} finally {
+			try {
+				followerReader.close();
+			} catch (IOException e) {
+				LOGGER.warn("IOException thrown while closing the follower reader", e);
+			}
+		}
+
+		return followerChunk;
+
+	}
+
+	/**
+	 * Add the follower lists held in a chunk
+	 * @param followerChunk
+	 */
+	private void addFollowerChunk(TwitterIdBuffer followerChunk) {
+
+		int chunkPosition = 0, chunkSize = followerChunk.size();
+		while (chunkPosition < chunkSize) {
+			int columnNumber = this.twitterIds.add(followerChunk.get(chunkPosition++));
+			int followersEnd = (int) followerChunk.get(chunkPosition++) + chunkPosition;
+			for (; chunkPosition < followersEnd; ++chunkPosition) {
+				this.matrixEntries.add(this.twitterIds.add(followerChunk.get(chunkPosition)), columnNumber);
+			}
+		}
+
+	}
+
+	/**
+	 * Add the list of followers of a Twitter ID. Each follower gets a link in the column of the Twitter ID being followed.
+	 * @param twitterId
+	 * @param followerIds
+	 */
+	public void addFollowers(long twitterId, TwitterIdBuffer followerIds) {
+
+		int columnNumber = this.twitterIds.add(twitterId);
+		int numberOfFollowers = followerIds.size();
+		for (int followerIndex = 0; followerIndex < numberOfFollowers; ++followerIndex) {
+			this.matrixEntries.add(this.twitterIds.add(followerIds.get(followerIndex)), columnNumber);
+		}
+
+	}
+
+	/**
+	 * Put the matrix indexes in ascending Twitter ID order and compress the collected follower links
+	 * @return matrix with an entry of 1.0 for every follower link
+	 */
+	public CompressedSparseColumnMatrix createMatrix() {
+
+		this.matrixEntries.renumber(this.twitterIds.sortByTwitterId());
+		CompressedSparseColumnMatrix matrix = new CompressedSparseColumnMatrix(this.twitterIds.size(), this.matrixEntries);
+		this.matrixEntries = new MatrixEntryBuffer();
+		return matrix;
+
+	}
+
+	public TwitterIdDictionary getTwitterIds() {
+		return this.twitterIds;
+	}
+
+}
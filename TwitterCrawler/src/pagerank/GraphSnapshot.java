@@ -0,0 +1,240 @@
+package pagerank;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import file.io.FollowerStorage;
+
+/**
+ * Single file holding a finalized follower graph: the Twitter ID of every matrix index followed by the compressed sparse
+ * column arrays of the transition matrix. The matrix arrays are memory mapped when the snapshot is loaded, so they are
+ * paged in by the operating system on demand instead of being copied onto the heap. Only the Twitter IDs are copied.
+ *
+ * The header records the modification time of the followers folder the graph was built from, the number of follower
+ * lists, the number of index records of its segments and a fingerprint of its follower files. The crawler only ever
+ * appends lists, so a snapshot is treated as current as long as the time and numbers are unchanged. When only segment
+ * lists have been appended since and the follower files are untouched, the snapshot can be brought up to date by reading
+ * the appended lists alone.
+ *
+ */
+public class GraphSnapshot {
+
+	public static final byte[] MAGIC = { 'T', 'W', 'G', 'S' };
+	public static final int VERSION = 2;
+	public static final int HEADER_SIZE = 40;
+	public static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+
+	private TwitterIdDictionary twitterIds;
+	private CompressedSparseColumnMatrix matrix;
+	private long folderLastModified;
+	private int numberOfLists;
+	private int numberOfIndexRecords;
+	private long followerFilesFingerprint;
+
+	public GraphSnapshot(TwitterIdDictionary twitterIds, CompressedSparseColumnMatrix matrix) {
+		this.twitterIds = twitterIds;
+		this.matrix = matrix;
+	}
+
+	public TwitterIdDictionary getTwitterIds() {
+		return this.twitterIds;
+	}
+
+	public CompressedSparseColumnMatrix getMatrix() {
+		return this.matrix;
+	}
+
+	/**
+	 * @return number of index records in the segments when the loaded snapshot was built
+	 */
+	public int getNumberOfIndexRecords() {
+		return this.numberOfIndexRecords;
+	}
+
+	/**
+	 * @param followerStorage
+	 * @return true if the loaded snapshot was built from the follower storage as it is now
+	 */
+	public boolean isCurrent(FollowerStorage followerStorage) {
+		return this.folderLastModified == followerStorage.getLastModified() && this.numberOfLists == followerStorage.size() && this.numberOfIndexRecords == followerStorage.getNumberOfIndexRecords();
+	}
+
+	/**
+	 * @param followerStorage
+	 * @return true if the storage only differs from the one the loaded snapshot was built from by lists appended to its
+	 * segments, which are those after getNumberOfIndexRecords records
+	 */
+	public boolean canBeUpdatedFrom(FollowerStorage followerStorage) {
+		return followerStorage.getNumberOfIndexRecords() >= this.numberOfIndexRecords && followerStorage.getFollowerFilesFingerprint() == this.followerFilesFingerprint;
+	}
+
+	/**
+	 * Map the snapshot file
+	 * @param snapshotFile
+	 * @return
+	 * @throws IOException if the file is not a complete snapshot
+	 */
+	public static GraphSnapshot load(String snapshotFile) throws IOException {
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(snapshotFile, "r");
+		try {
+			FileChannel fileChannel = randomAccessFile.getChannel();
+			ByteBuffer header = readHeader(fileChannel);
+			int size = header.getInt(8), numberOfEntries = header.getInt(12);
+
+			long position = HEADER_SIZE;
+			long twitterIdsPosition = position;
+			position += 8L * size;
+			long columnOffsetsPosition = position;
+			position += 4L * (size + 1);
+			long rowCountsPosition = position;
+			position += 4L * size;
+			long rowIndicesPosition = position;
+			position += 4L * numberOfEntries;
+			if (fileChannel.size() != position) {
+				throw new IOException("Graph snapshot " + snapshotFile + " has " + fileChannel.size() + " bytes, expected " + position);
+			}
+
+			long[] twitterIds = new long[size];
+			map(fileChannel, twitterIdsPosition, 8L * size).asLongBuffer().get(twitterIds);
+			IntBuffer columnOffsets = map(fileChannel, columnOffsetsPosition, 4L * (size + 1)).asIntBuffer();
+			IntBuffer rowCounts = map(fileChannel, rowCountsPosition, 4L * size).asIntBuffer();
+			IntBuffer rowIndices = map(fileChannel, rowIndicesPosition, 4L * numberOfEntries).asIntBuffer();
+
+			GraphSnapshot graphSnapshot = new GraphSnapshot(new TwitterIdDictionary(twitterIds), new CompressedSparseColumnMatrix(size, columnOffsets, rowIndices, rowCounts));
+			graphSnapshot.folderLastModified = header.getLong(16);
+			graphSnapshot.numberOfLists = header.getInt(24);
+			graphSnapshot.numberOfIndexRecords = header.getInt(28);
+			graphSnapshot.followerFilesFingerprint = header.getLong(32);
+			return graphSnapshot;
+		} finally {
+			//Mappings stay valid after the channel is closed
+			randomAccessFile.close();
+		}
+
+	}
+
+	/**
+	 * Write the snapshot to a temporary file and move it into place once complete
+	 * @param snapshotFile
+	 * @param followerStorage storage the graph was built from
+	 * @throws IOException
+	 */
+	public void save(String snapshotFile, FollowerStorage followerStorage) throws IOException {
+
+		File temporaryFile = new File(snapshotFile + ".tmp");
+		RandomAccessFile randomAccessFile = new RandomAccessFile(temporaryFile, "rw");
+		try {
+			FileChannel fileChannel = randomAccessFile.getChannel();
+			fileChannel.truncate(0);
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.put(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(this.matrix.getSize());
+			header.putInt(this.matrix.getNumberOfEntries());
+			header.putLong(followerStorage.getLastModified());
+			header.putInt(followerStorage.size());
+			header.putInt(followerStorage.getNumberOfIndexRecords());
+			header.putLong(followerStorage.getFollowerFilesFingerprint());
+			header.flip();
+			writeFully(fileChannel, header);
+
+			ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			writeTwitterIds(fileChannel, writeBuffer);
+			writeInts(fileChannel, writeBuffer, this.matrix.getColumnOffsets());
+			writeInts(fileChannel, writeBuffer, this.matrix.getRowCounts());
+			writeInts(fileChannel, writeBuffer, this.matrix.getRowIndices());
+			fileChannel.force(true);
+		} finally {
+			randomAccessFile.close();
+		}
+
+		Files.move(temporaryFile.toPath(), new File(snapshotFile).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+	}
+
+	private void writeTwitterIds(FileChannel fileChannel, ByteBuffer writeBuffer) throws IOException {
+
+		writeBuffer.clear();
+		LongBuffer twitterIdsView = writeBuffer.asLongBuffer();
+		int numberOfTwitterIds = this.twitterIds.size(), twitterIdIndex = 0;
+		while (twitterIdIndex < numberOfTwitterIds) {
+			twitterIdsView.clear();
+			while (twitterIdsView.hasRemaining() && twitterIdIndex < numberOfTwitterIds) {
+				twitterIdsView.put(this.twitterIds.getTwitterId(twitterIdIndex++));
+			}
+			writeBuffer.clear();
+			writeBuffer.limit(twitterIdsView.position() * 8);
+			writeFully(fileChannel, writeBuffer);
+		}
+
+	}
+
+	private void writeInts(FileChannel fileChannel, ByteBuffer writeBuffer, IntBuffer values) throws IOException {
+
+		writeBuffer.clear();
+		IntBuffer valuesView = writeBuffer.asIntBuffer();
+		while (values.hasRemaining()) {
+			valuesView.clear();
+			IntBuffer valuesChunk = values.slice();
+			valuesChunk.limit(Math.min(valuesChunk.remaining(), valuesView.capacity()));
+			valuesView.put(valuesChunk);
+			values.position(values.position() + valuesView.position());
+			writeBuffer.clear();
+			writeBuffer.limit(valuesView.position() * 4);
+			writeFully(fileChannel, writeBuffer);
+		}
+
+	}
+
+	private static void writeFully(FileChannel fileChannel, ByteBuffer bytes) throws IOException {
+		while (bytes.hasRemaining()) {
+			fileChannel.write(bytes);
+		}
+	}
+
+	private static ByteBuffer readHeader(FileChannel fileChannel) throws IOException {
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		while (header.hasRemaining() && fileChannel.read(header, header.position()) > 0) {
+			continue;
+		}
+		for (int magicIndex = 0; magicIndex < MAGIC.length; ++magicIndex) {
+			if (header.hasRemaining() || header.get(magicIndex) != MAGIC[magicIndex]) {
+				throw new IOException("Not a graph snapshot");
+			}
+		}
+		if (header.getInt(4) != VERSION) {
+			throw new IOException("Unsupported graph snapshot version " + header.getInt(4));
+		}
+		return header;
+
+	}
+
+	/**
+	 * Map a region of the file. A single mapping is limited to 2 GB, so each array is mapped on its own.
+	 * @param fileChannel
+	 * @param position
+	 * @param length
+	 * @return
+	 * @throws IOException
+	 */
+	private static ByteBuffer map(FileChannel fileChannel, long position, long length) throws IOException {
+
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("Graph snapshot region of " + length + " bytes is too large to map");
+		}
+		return fileChannel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+
+	}
+
+}
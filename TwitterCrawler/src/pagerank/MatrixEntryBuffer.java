@@ -0,0 +1,72 @@
+package pagerank;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer of matrix entry coordinates held in primitive arrays. Entries are appended during graph ingestion
+ * and handed over to the compressed sparse column matrix once all of them are known.
+ *
+ */
+public class MatrixEntryBuffer {
+
+	public static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+	private int[] rowNumbers;
+	private int[] columnNumbers;
+	private int numberOfEntries;
+
+	public MatrixEntryBuffer() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+
+	public MatrixEntryBuffer(int initialCapacity) {
+		this.rowNumbers = new int[Math.max(initialCapacity, 1)];
+		this.columnNumbers = new int[Math.max(initialCapacity, 1)];
+		this.numberOfEntries = 0;
+	}
+
+	/**
+	 * Append an entry, growing the backing arrays if they are full
+	 * @param rowNumber
+	 * @param columnNumber
+	 */
+	public void add(int rowNumber, int columnNumber) {
+
+		if (this.numberOfEntries == this.rowNumbers.length) {
+			int newCapacity = this.rowNumbers.length + (this.rowNumbers.length >> 1) + 1;
+			this.rowNumbers = Arrays.copyOf(this.rowNumbers, newCapacity);
+			this.columnNumbers = Arrays.copyOf(this.columnNumbers, newCapacity);
+		}
+
+		this.rowNumbers[this.numberOfEntries] = rowNumber;
+		this.columnNumbers[this.numberOfEntries] = columnNumber;
+		++this.numberOfEntries;
+
+	}
+
+	/**
+	 * Replace the row and column numbers of every entry
+	 * @param newIndexes new number for every old row and column number
+	 */
+	public void renumber(int[] newIndexes) {
+
+		for (int entryIndex = 0; entryIndex < this.numberOfEntries; ++entryIndex) {
+			this.rowNumbers[entryIndex] = newIndexes[this.rowNumbers[entryIndex]];
+			this.columnNumbers[entryIndex] = newIndexes[this.columnNumbers[entryIndex]];
+		}
+
+	}
+
+	public int getRowNumber(int entryIndex) {
+		return this.rowNumbers[entryIndex];
+	}
+
+	public int getColumnNumber(int entryIndex) {
+		return this.columnNumbers[entryIndex];
+	}
+
+	public int size() {
+		return this.numberOfEntries;
+	}
+
+}
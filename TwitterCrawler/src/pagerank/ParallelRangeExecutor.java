@@ -0,0 +1,199 @@
+package pagerank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import logging.Logger;
+
+/**
+ * Runs a computation over consecutive index ranges on a fixed pool of worker threads. Each range is handled by exactly
+ * one worker, so workers can write their own slice of an output array without locking. Partial results are added up in
+ * range order so that a given partitioning always produces the same total.
+ *
+ */
+public class ParallelRangeExecutor {
+
+	public static final int DEFAULT_THREAD_COUNT = 1;
+	public static final int PARTITIONS_PER_THREAD = 4;
+
+	private static final Logger LOGGER = Logger.getLogger(ParallelRangeExecutor.class);
+
+	private int threadCount;
+	private ExecutorService executorService;
+
+	/**
+	 * Computation over the indexes from rangeStart up to but not including rangeEnd
+	 */
+	public interface RangeComputation {
+		double compute(int rangeStart, int rangeEnd);
+	}
+
+	/**
+	 * Action over the indexes from rangeStart up to but not including rangeEnd, such as filling in its part of a vector
+	 */
+	public interface RangeAction {
+		void run(int rangeStart, int rangeEnd);
+	}
+
+	/**
+	 * Task over the indexes from rangeStart up to but not including rangeEnd that produces a result for its range
+	 */
+	public interface RangeTask<T> {
+		T run(int rangeStart, int rangeEnd);
+	}
+
+	public ParallelRangeExecutor(int threadCount) {
+
+		if (threadCount > 0) {
+			this.threadCount = threadCount;
+		} else {
+			LOGGER.warn("Thread count must be positive. Value of " + threadCount + " is not valid.");
+			this.threadCount = DEFAULT_THREAD_COUNT;
+		}
+
+		if (this.threadCount > 1) {
+			this.executorService = Executors.newFixedThreadPool(this.threadCount, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "pagerank-worker");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+	}
+
+	public int getThreadCount() {
+		return this.threadCount;
+	}
+
+	/**
+	 * @return number of ranges work should be split into so that uneven ranges still keep all workers busy
+	 */
+	public int getNumberOfPartitions() {
+		return this.threadCount == 1 ? 1 : this.threadCount * PARTITIONS_PER_THREAD;
+	}
+
+	/**
+	 * Split the indexes from 0 to size into ranges of nearly equal length
+	 * @param size
+	 * @return range boundaries, range i runs from boundaries[i] to boundaries[i + 1]
+	 */
+	public int[] partitionEvenly(int size) {
+
+		int numberOfPartitions = Math.max(1, Math.min(getNumberOfPartitions(), size));
+		int[] partitionBoundaries = new int[numberOfPartitions + 1];
+		for (int partitionIndex = 0; partitionIndex <= numberOfPartitions; ++partitionIndex) {
+			partitionBoundaries[partitionIndex] = (int) ((long) size * partitionIndex / numberOfPartitions);
+		}
+		return partitionBoundaries;
+
+	}
+
+	/**
+	 * Run the computation over every range and add up the results
+	 * @param partitionBoundaries
+	 * @param rangeComputation
+	 * @return sum of the results of all ranges
+	 */
+	public double sum(int[] partitionBoundaries, final RangeComputation rangeComputation) {
+
+		int numberOfPartitions = partitionBoundaries.length - 1;
+		double total = 0.0;
+
+		if (this.executorService == null || numberOfPartitions == 1) {
+			for (int partitionIndex = 0; partitionIndex < numberOfPartitions; ++partitionIndex) {
+				total += rangeComputation.compute(partitionBoundaries[partitionIndex], partitionBoundaries[partitionIndex + 1]);
+			}
+			return total;
+		}
+
+		List<Double> rangeResults = run(partitionBoundaries, new RangeTask<Double>() {
+			@Override
+			public Double run(int rangeStart, int rangeEnd) {
+				return Double.valueOf(rangeComputation.compute(rangeStart, rangeEnd));
+			}
+		});
+		for (Double rangeResult : rangeResults) {
+			total += rangeResult.doubleValue();
+		}
+
+		return total;
+
+	}
+
+	/**
+	 * Run the action over every range and wait for all of them to finish
+	 * @param partitionBoundaries
+	 * @param rangeAction
+	 */
+	public void forEachRange(int[] partitionBoundaries, final RangeAction rangeAction) {
+
+		run(partitionBoundaries, new RangeTask<Void>() {
+			@Override
+			public Void run(int rangeStart, int rangeEnd) {
+				rangeAction.run(rangeStart, rangeEnd);
+				return null;
+			}
+		});
+
+	}
+
+	/**
+	 * Run the task over every range
+	 * @param partitionBoundaries
+	 * @param rangeTask
+	 * @return results of the ranges in range order
+	 */
+	public <T> List<T> run(int[] partitionBoundaries, final RangeTask<T> rangeTask) {
+
+		int numberOfPartitions = partitionBoundaries.length - 1;
+		List<T> rangeResults = new ArrayList<T>(numberOfPartitions);
+
+		if (this.executorService == null || numberOfPartitions == 1) {
+			for (int partitionIndex = 0; partitionIndex < numberOfPartitions; ++partitionIndex) {
+				rangeResults.add(rangeTask.run(partitionBoundaries[partitionIndex], partitionBoundaries[partitionIndex + 1]));
+			}
+			return rangeResults;
+		}
+
+		List<Callable<T>> rangeTasks = new ArrayList<Callable<T>>(numberOfPartitions);
+		for (int partitionIndex = 0; partitionIndex < numberOfPartitions; ++partitionIndex) {
+			final int rangeStart = partitionBoundaries[partitionIndex], rangeEnd = partitionBoundaries[partitionIndex + 1];
+			rangeTasks.add(new Callable<T>() {
+				@Override
+				public T call() {
+					return rangeTask.run(rangeStart, rangeEnd);
+				}
+			});
+		}
+
+		try {
+			for (Future<T> rangeResult : this.executorService.invokeAll(rangeTasks)) {
+				rangeResults.add(rangeResult.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for PageRank workers", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("PageRank worker failed", e.getCause());
+		}
+
+		return rangeResults;
+
+	}
+
+	public void shutdown() {
+		if (this.executorService != null) {
+			this.executorService.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+package pagerank;
+
+/**
+ * Settings controlling how a random walk steps and when it stops. Every setting starts at its default, so only those
+ * that differ need to be set.
+ *
+ */
+public class RandomWalkSettings {
+
+	/**
+	 * Norm the change of the probability vector between two steps is measured in
+	 */
+	public enum ResidualNorm {
+		//Total change over all components, bounding the error of every ranking derived from the vector
+		L1,
+		//Largest change of any one component
+		MAXIMUM
+	}
+
+	/**
+	 * Method used to step from one probability vector to the next
+	 */
+	public enum Solver {
+		//Plain power iteration, every component computed from the previous vector
+		POWER,
+		//Components computed in a step are used right away for the components after them
+		GAUSS_SEIDEL,
+		//Power iteration that stops recomputing components once they have stopped changing
+		ADAPTIVE,
+		//Power iteration with a quadratic extrapolation of the vector every EXTRAPOLATION_INTERVAL steps
+		EXTRAPOLATION
+	}
+
+	public static final double DEFAULT_RESIDUAL_TOLERANCE = 1e-6;
+	public static final ResidualNorm DEFAULT_RESIDUAL_NORM = ResidualNorm.L1;
+	public static final int DEFAULT_MAXIMUM_RANDOM_WALK_COUNT = 75;
+	public static final Solver DEFAULT_SOLVER = Solver.POWER;
+	public static final double DEFAULT_ADAPTIVE_TOLERANCE = 1e-3;
+	public static final int DEFAULT_REPORT_INTERVAL = 0;
+
+	private double residualTolerance;
+	private ResidualNorm residualNorm;
+	private int maximumRandomWalkCount;
+	private Solver solver;
+	private double adaptiveTolerance;
+	private int reportInterval;
+
+	public RandomWalkSettings() {
+		this.residualTolerance = DEFAULT_RESIDUAL_TOLERANCE;
+		this.residualNorm = DEFAULT_RESIDUAL_NORM;
+		this.maximumRandomWalkCount = DEFAULT_MAXIMUM_RANDOM_WALK_COUNT;
+		this.solver = DEFAULT_SOLVER;
+		this.adaptiveTolerance = DEFAULT_ADAPTIVE_TOLERANCE;
+		this.reportInterval = DEFAULT_REPORT_INTERVAL;
+	}
+
+	public double getResidualTolerance() {
+		return residualTolerance;
+	}
+
+	/**
+	 * @param residualTolerance the walk stops once a step changes the probability vector by less than this
+	 */
+	public void setResidualTolerance(double residualTolerance) {
+		this.residualTolerance = residualTolerance;
+	}
+
+	public ResidualNorm getResidualNorm() {
+		return residualNorm;
+	}
+
+	public void setResidualNorm(ResidualNorm residualNorm) {
+		this.residualNorm = residualNorm;
+	}
+
+	public int getMaximumRandomWalkCount() {
+		return maximumRandomWalkCount;
+	}
+
+	public void setMaximumRandomWalkCount(int maximumRandomWalkCount) {
+		this.maximumRandomWalkCount = maximumRandomWalkCount;
+	}
+
+	public Solver getSolver() {
+		return solver;
+	}
+
+	/**
+	 * @param solver method used for single walks. Batched personalized walks always use power iteration.
+	 */
+	public void setSolver(Solver solver) {
+		this.solver = solver;
+	}
+
+	public double getAdaptiveTolerance() {
+		return adaptiveTolerance;
+	}
+
+	/**
+	 * @param adaptiveTolerance change relative to its value under which the adaptive solver stops recomputing a component
+	 */
+	public void setAdaptiveTolerance(double adaptiveTolerance) {
+		this.adaptiveTolerance = adaptiveTolerance;
+	}
+
+	public int getReportInterval() {
+		return reportInterval;
+	}
+
+	/**
+	 * @param reportInterval number of steps between printouts of the top page ranks, or 0 to only print them once the walk
+	 * is over
+	 */
+	public void setReportInterval(int reportInterval) {
+		this.reportInterval = reportInterval;
+	}
+
+}
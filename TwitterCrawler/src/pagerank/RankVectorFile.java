@@ -0,0 +1,158 @@
+package pagerank;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * File holding a converged probability distribution vector as pairs of Twitter ID and rank. Ranks are keyed by Twitter
+ * ID rather than matrix index, since indexes move whenever new Twitter IDs join the follower graph. The next random walk
+ * can then start from the ranking it is likely to end close to.
+ *
+ */
+public class RankVectorFile {
+
+	public static final byte[] MAGIC = { 'T', 'W', 'P', 'R' };
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 16;
+	public static final int ENTRY_SIZE = 16;
+	public static final int BUFFER_ENTRIES = 64 * 1024;
+
+	/**
+	 * Write the vector to a temporary file and move it into place once complete
+	 * @param rankFile
+	 * @param twitterIds Twitter ID of every vector component
+	 * @param probabilityDistributionVector
+	 * @throws IOException
+	 */
+	public static void save(String rankFile, TwitterIdDictionary twitterIds, double[] probabilityDistributionVector) throws IOException {
+
+		File temporaryFile = new File(rankFile + ".tmp");
+		RandomAccessFile randomAccessFile = new RandomAccessFile(temporaryFile, "rw");
+		try {
+			FileChannel fileChannel = randomAccessFile.getChannel();
+			fileChannel.truncate(0);
+
+			ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_ENTRIES * ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			writeBuffer.put(MAGIC);
+			writeBuffer.putInt(VERSION);
+			writeBuffer.putInt(probabilityDistributionVector.length);
+			writeBuffer.putInt(0);
+			for (int vectorIndex = 0; vectorIndex < probabilityDistributionVector.length; ++vectorIndex) {
+				if (writeBuffer.remaining() < ENTRY_SIZE) {
+					writeFully(fileChannel, writeBuffer);
+				}
+				writeBuffer.putLong(twitterIds.getTwitterId(vectorIndex));
+				writeBuffer.putDouble(probabilityDistributionVector[vectorIndex]);
+			}
+			writeFully(fileChannel, writeBuffer);
+			fileChannel.force(true);
+		} finally {
+			randomAccessFile.close();
+		}
+
+		Files.move(temporaryFile.toPath(), new File(rankFile).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+	}
+
+	/**
+	 * Read the ranks saved for the Twitter IDs of the graph. Twitter IDs that are new to the graph start at the given rank,
+	 * and ranks of Twitter IDs no longer in the graph are dropped. The vector is then scaled to a total of 1.
+	 * @param rankFile
+	 * @param twitterIds Twitter ID of every vector component
+	 * @param newTwitterIdRank
+	 * @return vector with a component for every Twitter ID
+	 * @throws IOException if the file is not a complete rank vector file
+	 */
+	public static double[] load(String rankFile, TwitterIdDictionary twitterIds, double newTwitterIdRank) throws IOException {
+
+		double[] probabilityDistributionVector = new double[twitterIds.size()];
+		boolean[] ranked = new boolean[twitterIds.size()];
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(rankFile, "r");
+		try {
+			FileChannel fileChannel = randomAccessFile.getChannel();
+			ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_ENTRIES * ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			readBuffer.limit(HEADER_SIZE);
+			long position = readFully(fileChannel, readBuffer, 0);
+			for (int magicIndex = 0; magicIndex < MAGIC.length; ++magicIndex) {
+				if (readBuffer.hasRemaining() || readBuffer.get(magicIndex) != MAGIC[magicIndex]) {
+					throw new IOException("Not a rank vector file " + rankFile);
+				}
+			}
+			if (readBuffer.getInt(4) != VERSION) {
+				throw new IOException("Unsupported rank vector file version " + readBuffer.getInt(4));
+			}
+			int numberOfEntries = readBuffer.getInt(8);
+			if (fileChannel.size() != HEADER_SIZE + (long) numberOfEntries * ENTRY_SIZE) {
+				throw new IOException("Rank vector file " + rankFile + " has " + fileChannel.size() + " bytes, expected " + (HEADER_SIZE + (long) numberOfEntries * ENTRY_SIZE));
+			}
+
+			for (int entriesRead = 0; entriesRead < numberOfEntries;) {
+				readBuffer.clear();
+				readBuffer.limit(Math.min(BUFFER_ENTRIES, numberOfEntries - entriesRead) * ENTRY_SIZE);
+				position = readFully(fileChannel, readBuffer, position);
+				readBuffer.flip();
+				while (readBuffer.hasRemaining()) {
+					int vectorIndex = twitterIds.getIndex(readBuffer.getLong());
+					double rank = readBuffer.getDouble();
+					if (vectorIndex != TwitterIdDictionary.NOT_FOUND) {
+						probabilityDistributionVector[vectorIndex] = rank;
+						ranked[vectorIndex] = true;
+					}
+					++entriesRead;
+				}
+			}
+		} finally {
+			randomAccessFile.close();
+		}
+
+		double vectorTotal = 0.0;
+		for (int vectorIndex = 0; vectorIndex < probabilityDistributionVector.length; ++vectorIndex) {
+			if (!ranked[vectorIndex]) {
+				probabilityDistributionVector[vectorIndex] = newTwitterIdRank;
+			}
+			vectorTotal += probabilityDistributionVector[vectorIndex];
+		}
+		if (vectorTotal > 0.0) {
+			for (int vectorIndex = 0; vectorIndex < probabilityDistributionVector.length; ++vectorIndex) {
+				probabilityDistributionVector[vectorIndex] /= vectorTotal;
+			}
+		}
+		return probabilityDistributionVector;
+
+	}
+
+	private static void writeFully(FileChannel fileChannel, ByteBuffer writeBuffer) throws IOException {
+		writeBuffer.flip();
+		while (writeBuffer.hasRemaining()) {
+			fileChannel.write(writeBuffer);
+		}
+		writeBuffer.clear();
+	}
+
+	/**
+	 * Read until the buffer is full or the file ends
+	 * @param fileChannel
+	 * @param readBuffer
+	 * @param position
+	 * @return file position after the bytes read
+	 * @throws IOException
+	 */
+	private static long readFully(FileChannel fileChannel, ByteBuffer readBuffer, long position) throws IOException {
+		while (readBuffer.hasRemaining()) {
+			int bytesRead = fileChannel.read(readBuffer, position);
+			if (bytesRead < 0) {
+				break;
+			}
+			position += bytesRead;
+		}
+		return position;
+	}
+
+}
@@ -0,0 +1,122 @@
+package pagerank;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import file.io.FileWriter;
+import logging.Logger;
+
+/**
+ * Sparse teleportation distribution for personalized PageRank. Instead of teleporting to any Twitter ID with equal
+ * probability, the random walk teleports to one of a few seed Twitter IDs, each with its own weight. Only the seeds are
+ * stored, as matrix indexes with weights adding up to 1.
+ *
+ */
+public class TeleportVector {
+
+	private static final Logger LOGGER = Logger.getLogger(TeleportVector.class);
+
+	private int[] indexes;
+	private double[] weights;
+
+	/**
+	 * Create the distribution over the seeds present in the follower graph. Seeds that are not in the graph are left out
+	 * and the weights of the others are scaled to a total of 1.
+	 * @param twitterIds Twitter ID of every matrix index
+	 * @param seedTwitterIds
+	 * @param seedWeights weight of every seed or null to weigh all seeds the same
+	 * @throws IllegalArgumentException if no seed with a positive weight is in the graph
+	 */
+	public TeleportVector(TwitterIdDictionary twitterIds, long[] seedTwitterIds, double[] seedWeights) {
+
+		this.indexes = new int[seedTwitterIds.length];
+		this.weights = new double[seedTwitterIds.length];
+		int numberOfSeeds = 0;
+		double weightTotal = 0.0;
+		for (int seedIndex = 0; seedIndex < seedTwitterIds.length; ++seedIndex) {
+			int index = twitterIds.getIndex(seedTwitterIds[seedIndex]);
+			double weight = seedWeights == null ? 1.0 : seedWeights[seedIndex];
+			if (index == TwitterIdDictionary.NOT_FOUND) {
+				LOGGER.warn("Seed Twitter ID " + seedTwitterIds[seedIndex] + " is not in the follower graph. Seed skipped.");
+			} else if (weight > 0.0) {
+				this.indexes[numberOfSeeds] = index;
+				this.weights[numberOfSeeds++] = weight;
+				weightTotal += weight;
+			}
+		}
+		if (numberOfSeeds == 0) {
+			throw new IllegalArgumentException("None of the " + seedTwitterIds.length + " seed Twitter IDs is in the follower graph");
+		}
+
+		this.indexes = Arrays.copyOf(this.indexes, numberOfSeeds);
+		this.weights = Arrays.copyOf(this.weights, numberOfSeeds);
+		for (int seedIndex = 0; seedIndex < numberOfSeeds; ++seedIndex) {
+			this.weights[seedIndex] /= weightTotal;
+		}
+
+	}
+
+	/**
+	 * Read the seeds from a file in the format of the crawler seed set, one Twitter ID per line. A line may also give the
+	 * weight of its seed after the Twitter ID.
+	 * @param seedFile
+	 * @param twitterIds Twitter ID of every matrix index
+	 * @return
+	 * @throws IOException
+	 * @throws NumberFormatException if a line holds anything other than a Twitter ID and a weight
+	 */
+	public static TeleportVector load(String seedFile, TwitterIdDictionary twitterIds) throws IOException {
+
+		List<String> seedFileContents = new FileWriter().getFileContents(seedFile);
+		long[] seedTwitterIds = new long[seedFileContents.size()];
+		double[] seedWeights = new double[seedFileContents.size()];
+		int numberOfSeeds = 0;
+		for (String seedLine : seedFileContents) {
+			String[] seedFields = seedLine.trim().split("\\s+");
+			if (seedFields[0].length() == 0) {
+				continue;
+			}
+			seedTwitterIds[numberOfSeeds] = Long.parseLong(seedFields[0]);
+			seedWeights[numberOfSeeds++] = seedFields.length > 1 ? Double.parseDouble(seedFields[1]) : 1.0;
+		}
+		return new TeleportVector(twitterIds, Arrays.copyOf(seedTwitterIds, numberOfSeeds), Arrays.copyOf(seedWeights, numberOfSeeds));
+
+	}
+
+	/**
+	 * @return number of seeds
+	 */
+	public int size() {
+		return this.indexes.length;
+	}
+
+	/**
+	 * @param seedIndex
+	 * @return matrix index of the seed
+	 */
+	public int getIndex(int seedIndex) {
+		return this.indexes[seedIndex];
+	}
+
+	/**
+	 * @param seedIndex
+	 * @return probability of teleporting to the seed
+	 */
+	public double getWeight(int seedIndex) {
+		return this.weights[seedIndex];
+	}
+
+	/**
+	 * @param size number of matrix indexes
+	 * @return the distribution as a dense vector
+	 */
+	public double[] toVector(int size) {
+		double[] vector = new double[size];
+		for (int seedIndex = 0; seedIndex < this.indexes.length; ++seedIndex) {
+			vector[this.indexes[seedIndex]] += this.weights[seedIndex];
+		}
+		return vector;
+	}
+
+}
@@ -0,0 +1,142 @@
+package pagerank;
+
+/**
+ * Selects the highest ranked components of a probability vector without sorting the whole vector. The best components
+ * offered so far are kept in a binary heap of primitive arrays with the lowest of them at the root, so each offer costs
+ * at most O(log k) and selecting from n components O(n log k). Equal ranks go to the lower index, the order a stable sort
+ * of the whole vector would give.
+ *
+ */
+public class TopRankSelector {
+
+	private int capacity;
+	private int[] heapIndexes;
+	private double[] heapRanks;
+	private int size;
+
+	/**
+	 * @param capacity number of components to select
+	 */
+	public TopRankSelector(int capacity) {
+		this.capacity = Math.max(capacity, 0);
+		this.heapIndexes = new int[this.capacity];
+		this.heapRanks = new double[this.capacity];
+		this.size = 0;
+	}
+
+	/**
+	 * Select the highest ranked components of a range of the vector
+	 * @param probabilityVector
+	 * @param rangeStart
+	 * @param rangeEnd
+	 */
+	public void offerAll(double[] probabilityVector, int rangeStart, int rangeEnd) {
+		for (int vectorComponentIndex = rangeStart; vectorComponentIndex < rangeEnd; ++vectorComponentIndex) {
+			offer(vectorComponentIndex, probabilityVector[vectorComponentIndex]);
+		}
+	}
+
+	/**
+	 * Add the components selected by another selector, for example one that went through another range of the vector
+	 * @param topRankSelector
+	 */
+	public void offerAll(TopRankSelector topRankSelector) {
+		for (int heapPosition = 0; heapPosition < topRankSelector.size; ++heapPosition) {
+			offer(topRankSelector.heapIndexes[heapPosition], topRankSelector.heapRanks[heapPosition]);
+		}
+	}
+
+	/**
+	 * Keep the component if it ranks above the lowest one kept
+	 * @param index
+	 * @param rank
+	 */
+	public void offer(int index, double rank) {
+
+		if (this.size < this.capacity) {
+			this.heapIndexes[this.size] = index;
+			this.heapRanks[this.size] = rank;
+			siftUp(this.size++);
+		} else if (this.capacity > 0 && ranksAbove(index, rank, this.heapIndexes[0], this.heapRanks[0])) {
+			this.heapIndexes[0] = index;
+			this.heapRanks[0] = rank;
+			siftDown(0);
+		}
+
+	}
+
+	/**
+	 * @return indexes of the selected components, highest ranked first
+	 */
+	public int[] getIndexes() {
+
+		//Sort a copy of the heap by taking the lowest ranked component off it again and again
+		TopRankSelector sortedSelector = new TopRankSelector(this.capacity);
+		sortedSelector.offerAll(this);
+		int[] indexes = new int[this.size];
+		for (int indexPosition = this.size - 1; indexPosition >= 0; --indexPosition) {
+			indexes[indexPosition] = sortedSelector.heapIndexes[0];
+			sortedSelector.removeRoot();
+		}
+		return indexes;
+
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	private void removeRoot() {
+		--this.size;
+		if (this.size > 0) {
+			this.heapIndexes[0] = this.heapIndexes[this.size];
+			this.heapRanks[0] = this.heapRanks[this.size];
+			siftDown(0);
+		}
+	}
+
+	private void siftUp(int heapPosition) {
+
+		while (heapPosition > 0) {
+			int parentPosition = (heapPosition - 1) >> 1;
+			if (!ranksAbove(this.heapIndexes[parentPosition], this.heapRanks[parentPosition], this.heapIndexes[heapPosition], this.heapRanks[heapPosition])) {
+				return;
+			}
+			swap(parentPosition, heapPosition);
+			heapPosition = parentPosition;
+		}
+
+	}
+
+	private void siftDown(int heapPosition) {
+
+		while (true) {
+			int lowestPosition = heapPosition, childPosition = 2 * heapPosition + 1;
+			for (int childEnd = Math.min(childPosition + 2, this.size); childPosition < childEnd; ++childPosition) {
+				if (ranksAbove(this.heapIndexes[lowestPosition], this.heapRanks[lowestPosition], this.heapIndexes[childPosition], this.heapRanks[childPosition])) {
+					lowestPosition = childPosition;
+				}
+			}
+			if (lowestPosition == heapPosition) {
+				return;
+			}
+			swap(lowestPosition, heapPosition);
+			heapPosition = lowestPosition;
+		}
+
+	}
+
+	private void swap(int firstPosition, int secondPosition) {
+		int index = this.heapIndexes[firstPosition];
+		double rank = this.heapRanks[firstPosition];
+		this.heapIndexes[firstPosition] = this.heapIndexes[secondPosition];
+		this.heapRanks[firstPosition] = this.heapRanks[secondPosition];
+		this.heapIndexes[secondPosition] = index;
+		this.heapRanks[secondPosition] = rank;
+	}
+
+	private static boolean ranksAbove(int index, double rank, int otherIndex, double otherRank) {
+		return rank > otherRank || (rank == otherRank && index < otherIndex);
+	}
+
+}
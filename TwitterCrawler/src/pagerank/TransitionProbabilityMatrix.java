@@ -1,32 +1,54 @@
 package pagerank;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeSet;
 
-import file.io.FileWriter;
+import file.io.FollowerStorage;
+import logging.Level;
+import logging.Logger;
+import metrics.Counter;
+import metrics.Gauge;
+import metrics.MetricsRegistry;
+import metrics.Timer;
 
 public class TransitionProbabilityMatrix {
 	
 	public static final double DEFAULT_TELEPORTATION_RATE = 0.1;
 	public static final double MINIMUM_TELEPORTATION_RATE = 0.0;
 	public static final double MAXIMUM_TELEPORTATION_RATE = 1.0;
-	public static final double VECTOR_SIMILARITY_TARGET = 0.9999;
-	public static final int MAXIMUM_RANDOM_WALK_COUNT = 75;
 	public static final int DEFAULT_TOP_PAGE_RANKS_TO_PRINT = 10;
+	public static final int EXTRAPOLATION_INTERVAL = 10;
+	public static final int ADAPTIVE_STABLE_STEPS = 2;
 	
-	private List<Long> twitterIds;
-	private Map<MatrixElement, Double> matrix;
-	private Map<Integer, Integer> rowCounts;
+	private static final Logger LOGGER = Logger.getLogger(TransitionProbabilityMatrix.class);
+	private static final Timer SNAPSHOT_MAP_TIME = MetricsRegistry.getInstance().getTimer("pagerank.snapshotMapTime");
+	private static final Timer FOLLOWER_LIST_READ_TIME = MetricsRegistry.getInstance().getTimer("pagerank.followerListReadTime");
+	private static final Timer MATRIX_BUILD_TIME = MetricsRegistry.getInstance().getTimer("pagerank.matrixBuildTime");
+	private static final Timer SNAPSHOT_SAVE_TIME = MetricsRegistry.getInstance().getTimer("pagerank.snapshotSaveTime");
+	private static final Timer NORMALIZE_TIME = MetricsRegistry.getInstance().getTimer("pagerank.normalizeTime");
+	private static final Timer STEP_TIME = MetricsRegistry.getInstance().getTimer("pagerank.stepTime");
+	private static final Timer BATCHED_STEP_TIME = MetricsRegistry.getInstance().getTimer("pagerank.batchedStepTime");
+	private static final Counter RANDOM_WALK_STEPS = MetricsRegistry.getInstance().getCounter("pagerank.randomWalkSteps");
+	private static final Gauge RESIDUAL = MetricsRegistry.getInstance().getGauge("pagerank.residual");
+	private static final Gauge NUMBER_OF_TWITTER_IDS = MetricsRegistry.getInstance().getGauge("pagerank.twitterIds");
+	private static final Gauge NUMBER_OF_LINKS = MetricsRegistry.getInstance().getGauge("pagerank.followerLinks");
+	
+	private TwitterIdDictionary twitterIds;
+	private CompressedSparseColumnMatrix matrix;
 	private double teleportationRate;
 	private double teleportationMatrixEntry;
 	private double[] probabilityDistributionVector;
 	private int topPageRanksToPrint;
+	private int threadCount;
+	private RandomWalkSettings randomWalkSettings;
+	private ParallelRangeExecutor parallelRangeExecutor;
+	private boolean ownsParallelRangeExecutor;
+	private int[] columnPartitions;
+	private int[] vectorPartitions;
 	
 	/**
 	 * Create the transition probability matrix based on twitter follower files present in folder
@@ -40,64 +62,194 @@ public class TransitionProbabilityMatrix {
 	
 	public TransitionProbabilityMatrix(String followersFolder, double teleportationRate, int topPageRanksToPrint) {
 		
+		this(followersFolder, teleportationRate, topPageRanksToPrint, ParallelRangeExecutor.DEFAULT_THREAD_COUNT);
+		
+	}
+	
+	/**
+	 * Create the transition probability matrix and do the random walk with the given number of worker threads
+	 * @param followersFolder
+	 * @param teleportationRate
+	 * @param topPageRanksToPrint
+	 * @param threadCount
+	 */
+	public TransitionProbabilityMatrix(String followersFolder, double teleportationRate, int topPageRanksToPrint, int threadCount) {
+		
+		this(followersFolder, teleportationRate, topPageRanksToPrint, threadCount, null);
+		
+	}
+	
+	/**
+	 * Create the transition probability matrix, reusing the graph snapshot if it is current for the followers folder and
+	 * otherwise saving a new one after loading the follower files
+	 * @param followersFolder
+	 * @param teleportationRate
+	 * @param topPageRanksToPrint
+	 * @param threadCount
+	 * @param snapshotFile graph snapshot file or null to always load the follower files
+	 */
+	public TransitionProbabilityMatrix(String followersFolder, double teleportationRate, int topPageRanksToPrint, int threadCount, String snapshotFile) {
+		
+		this(followersFolder, teleportationRate, topPageRanksToPrint, threadCount, snapshotFile, null);
+		
+	}
+	
+	/**
+	 * Create the transition probability matrix and warm start the random walk from the ranking of an earlier run. As the
+	 * crawler adds follower lists the ranking moves little, so starting from the last converged vector takes far fewer
+	 * steps than starting from the uniform distribution. The converged vector is saved back for the next run.
+	 * @param followersFolder
+	 * @param teleportationRate
+	 * @param topPageRanksToPrint
+	 * @param threadCount
+	 * @param snapshotFile graph snapshot file or null to always load the follower files
+	 * @param rankFile rank vector file or null to always start from the uniform distribution
+	 */
+	public TransitionProbabilityMatrix(String followersFolder, double teleportationRate, int topPageRanksToPrint, int threadCount, String snapshotFile, String rankFile) {
+		
+		this(followersFolder, teleportationRate, topPageRanksToPrint, threadCount, snapshotFile, rankFile, new RandomWalkSettings());
+		
+	}
+	
+	/**
+	 * Create the transition probability matrix and do the random walk with the given stopping rule. The worker threads are
+	 * kept for the personalized queries until shutdown is called.
+	 * @param followersFolder
+	 * @param teleportationRate
+	 * @param topPageRanksToPrint
+	 * @param threadCount
+	 * @param snapshotFile graph snapshot file or null to always load the follower files
+	 * @param rankFile rank vector file or null to always start from the uniform distribution
+	 * @param randomWalkSettings
+	 */
+	public TransitionProbabilityMatrix(String followersFolder, double teleportationRate, int topPageRanksToPrint, int threadCount, String snapshotFile, String rankFile, RandomWalkSettings randomWalkSettings) {
+		
 		if (teleportationRate > MINIMUM_TELEPORTATION_RATE && teleportationRate < MAXIMUM_TELEPORTATION_RATE) {
 			this.teleportationRate = teleportationRate;
 		} else {
-			System.err.println("Teleportation rate must be between " + MINIMUM_TELEPORTATION_RATE + " and " + MAXIMUM_TELEPORTATION_RATE + ". Value of " + teleportationRate + " is not valid.");
+			LOGGER.warn("Teleportation rate must be between " + MINIMUM_TELEPORTATION_RATE + " and " + MAXIMUM_TELEPORTATION_RATE + ". Value of " + teleportationRate + " is not valid.");
 			this.teleportationRate = DEFAULT_TELEPORTATION_RATE;
 		}
 		
 		this.topPageRanksToPrint = topPageRanksToPrint;
+		this.threadCount = threadCount;
+		this.randomWalkSettings = randomWalkSettings;
+		
+		this.parallelRangeExecutor = new ParallelRangeExecutor(this.threadCount);
+		this.ownsParallelRangeExecutor = true;
+		try {
+			LOGGER.info("Loading follower graph");
+			loadFollowerGraph(followersFolder, snapshotFile);
+			LOGGER.info("Normalizing Probability Matrix Rows");
+			normalizeTransitionProbabilityMatrixRows();
+			LOGGER.info("Do random graph walk");
+			doRandomWalkOnFollowerGraph(rankFile);
+		} catch (RuntimeException e) {
+			shutdown();
+			throw e;
+		}
 		
-		System.out.println(Calendar.getInstance().getTime().toString() + " Creating unique set of Twitter Ids");
-		createSetOfUniqueTwitterIdsInFollowerGraph(followersFolder);
-		System.out.println(Calendar.getInstance().getTime().toString() + " Creating transition matrix entries");
-		createTransitionMatrixEntries(followersFolder);
-		System.out.println(Calendar.getInstance().getTime().toString() + " Normalizing Probability Matrix Rows");
-		normalizeTransitionProbabilityMatrixRows();
-		System.out.println(Calendar.getInstance().getTime().toString() + " Do random graph walk");
-		doRandomWalkOnFollowerGraph();
+	}
+	
+	/**
+	 * Set up the transition probability matrix over a follower graph that is already loaded, without normalizing the rows
+	 * or doing the random walk. Lets the single steps be timed on their own.
+	 * @param twitterIds
+	 * @param matrix matrix with an entry of 1.0 for every follower link
+	 * @param teleportationRate
+	 * @param parallelRangeExecutor workers for the steps, shut down by the caller
+	 * @param randomWalkSettings
+	 */
+	TransitionProbabilityMatrix(TwitterIdDictionary twitterIds, CompressedSparseColumnMatrix matrix, double teleportationRate, ParallelRangeExecutor parallelRangeExecutor, RandomWalkSettings randomWalkSettings) {
+		
+		this.twitterIds = twitterIds;
+		this.matrix = matrix;
+		this.teleportationRate = teleportationRate;
+		this.topPageRanksToPrint = DEFAULT_TOP_PAGE_RANKS_TO_PRINT;
+		this.threadCount = parallelRangeExecutor.getThreadCount();
+		this.randomWalkSettings = randomWalkSettings;
+		this.parallelRangeExecutor = parallelRangeExecutor;
+		this.ownsParallelRangeExecutor = false;
+		createTeleportationMatrixEntry();
+		partitionWork();
 		
 	}
 	
-	private void createSetOfUniqueTwitterIdsInFollowerGraph(String followersFolder) {
-		
-		//Set to hold twitter ids
-		TreeSet<Long> twitterIds = new TreeSet<Long>();
-		
-		FileWriter fileOperations = new FileWriter();
-		
-		//Get list of files containing twitter followers
-		String[] folderContents = fileOperations.getFolderContents(followersFolder);
-		if (folderContents != null && folderContents.length > 0) {
-			List<String> followersIds = null;
-			for (String fileName : folderContents) {
-				if (fileOperations.fileExists(getFullFilePath(followersFolder, fileName))) {
-					try {
-						//Add friend id to master list
-						twitterIds.add(Long.valueOf(extractTwitterIdFromFileName(fileName)));
-						followersIds = fileOperations.getFileContents(getFullFilePath(followersFolder, fileName));
-						//Add followers to master list
-						for (String twitterFollower : followersIds) {
-							twitterIds.add(Long.valueOf(extractTwitterIdFromFileName(twitterFollower)));
-						}
-					} catch (NumberFormatException e) {
-						System.err.println("NumberFormatException thrown while trying to extract Twitter ID from String");
-						e.printStackTrace();
-						continue;
-					} catch (IOException e) {
-						System.err.println("IOException thrown while reading contents of file " + followersFolder + "/" + fileName);
-						e.printStackTrace();
-						continue;
-					}
-				}
+	/**
+	 * Map the graph snapshot if it is current. If only follower lists have been appended to the segments since, read just
+	 * the Twitter IDs whose latest list is among them and put those lists in place of their snapshot columns. Otherwise
+	 * read each follower list once to create the Twitter ID dictionary and the transition matrix entries. Either way the
+	 * graph is then saved as the new snapshot.
+	 * @param followersFolder
+	 * @param snapshotFile
+	 */
+	private void loadFollowerGraph(String followersFolder, String snapshotFile) {
+		
+		FollowerStorage followerStorage = null;
+		try {
+			followerStorage = new FollowerStorage(followersFolder);
+		} catch (IOException e) {
+			LOGGER.error("IOException thrown while reading the follower index in " + followersFolder, e);
+		}
+		
+		GraphSnapshot graphSnapshot = null;
+		if (snapshotFile != null && followerStorage != null && new File(snapshotFile).isFile()) {
+			long mapStartNanos = SNAPSHOT_MAP_TIME.start();
+			try {
+				graphSnapshot = GraphSnapshot.load(snapshotFile);
+				SNAPSHOT_MAP_TIME.stop(mapStartNanos);
+			} catch (IOException e) {
+				LOGGER.warn("IOException thrown while mapping graph snapshot " + snapshotFile + ". Loading follower files instead.", e);
 			}
 		}
 		
-		this.twitterIds = new ArrayList<Long>(twitterIds);
+		if (graphSnapshot != null && graphSnapshot.isCurrent(followerStorage)) {
+			this.matrix = graphSnapshot.getMatrix();
+			this.twitterIds = graphSnapshot.getTwitterIds();
+			createTeleportationMatrixEntry();
+			updateGraphGauges();
+			LOGGER.info("Mapped graph snapshot " + snapshotFile);
+			return;
+		}
+		
+		FollowerGraphLoader followerGraphLoader = new FollowerGraphLoader(this.parallelRangeExecutor);
+		long readStartNanos = FOLLOWER_LIST_READ_TIME.start();
+		if (graphSnapshot != null && graphSnapshot.canBeUpdatedFrom(followerStorage)) {
+			int numberOfNewLists = followerGraphLoader.updateGraph(graphSnapshot.getTwitterIds(), graphSnapshot.getMatrix(), followerStorage, graphSnapshot.getNumberOfIndexRecords());
+			LOGGER.info("Added " + numberOfNewLists + " new follower lists to graph snapshot " + snapshotFile);
+		} else if (followerStorage != null) {
+			followerGraphLoader.loadFollowerLists(followerStorage);
+		} else {
+			followerGraphLoader.loadFollowersFolder(followersFolder);
+		}
+		FOLLOWER_LIST_READ_TIME.stop(readStartNanos);
+		long buildStartNanos = MATRIX_BUILD_TIME.start();
+		this.matrix = followerGraphLoader.createMatrix();
+		this.twitterIds = followerGraphLoader.getTwitterIds();
+		MATRIX_BUILD_TIME.stop(buildStartNanos);
 		
 		createTeleportationMatrixEntry();
-
+		updateGraphGauges();
+		
+		if (snapshotFile != null && followerStorage != null) {
+			try {
+				long saveStartNanos = SNAPSHOT_SAVE_TIME.start();
+				new GraphSnapshot(this.twitterIds, this.matrix).save(snapshotFile, followerStorage);
+				SNAPSHOT_SAVE_TIME.stop(saveStartNanos);
+				LOGGER.info("Saved graph snapshot " + snapshotFile);
+			} catch (IOException e) {
+				LOGGER.error("IOException thrown while saving graph snapshot " + snapshotFile, e);
+			}
+		}
+		
+	}
+	
+	/**
+	 * Publish the size of the loaded graph to the PageRank metrics
+	 */
+	private void updateGraphGauges() {
+		NUMBER_OF_TWITTER_IDS.set(getNumberOfTwittersIdsInFollowerGraph());
+		NUMBER_OF_LINKS.set(this.matrix.getNumberOfEntries());
 	}
 	
 	/**
@@ -107,320 +259,687 @@ public class TransitionProbabilityMatrix {
 		this.teleportationMatrixEntry = this.teleportationRate / getNumberOfTwittersIdsInFollowerGraph();
 	}
 	
-	private String extractTwitterIdFromFileName(String filename) {
+	/**
+	 * For every row in transition matrix, divide each present entry by total number of entries to create transition probabilities.
+	 * A Twitter ID following no one keeps an empty row, and the walk teleports from it instead.
+	 */
+	void normalizeTransitionProbabilityMatrixRows() {
 		
-		//Filename will consist of numeric twitter id followed by ".txt" extension
-		String[] filenameComponents = filename.trim().split("\\.");
-		return filenameComponents[0];
+		long normalizeStartNanos = NORMALIZE_TIME.start();
+		this.matrix.normalizeRows(1 - this.teleportationRate);
+		NORMALIZE_TIME.stop(normalizeStartNanos);
 		
 	}
 	
-	private String getFullFilePath(String foldername, String filename) {
-		return foldername + "/" + filename;
+	/**
+	 * Keep doing a random follower graph walk till the probability vector reaches a stead state or maximum iterations have been reached.
+	 * @param rankFile ranking to start from and to save the result to, or null
+	 */
+	private void doRandomWalkOnFollowerGraph(String rankFile) {
+		
+		this.probabilityDistributionVector = null;
+		if (rankFile != null && new File(rankFile).isFile()) {
+			try {
+				//A Twitter ID new to the graph starts at the rank it would get from teleportation alone
+				this.probabilityDistributionVector = RankVectorFile.load(rankFile, this.twitterIds, this.teleportationMatrixEntry);
+				LOGGER.info("Starting from the ranking in " + rankFile);
+			} catch (IOException e) {
+				LOGGER.warn("IOException thrown while reading ranking " + rankFile + ". Starting from the uniform distribution instead.", e);
+			}
+		}
+		if (this.probabilityDistributionVector == null) {
+			//Create page rank vector and start with every node equally likely
+			this.probabilityDistributionVector = new double[getNumberOfTwittersIdsInFollowerGraph()];
+			Arrays.fill(this.probabilityDistributionVector, 1.0 / getNumberOfTwittersIdsInFollowerGraph());
+		}
+		
+		partitionWork();
+		this.probabilityDistributionVector = doRandomWalk(this.probabilityDistributionVector, null);
+		
+		if (rankFile != null) {
+			try {
+				RankVectorFile.save(rankFile, this.twitterIds, this.probabilityDistributionVector);
+				LOGGER.info("Saved ranking " + rankFile);
+			} catch (IOException e) {
+				LOGGER.error("IOException thrown while saving ranking " + rankFile, e);
+			}
+		}
+		
 	}
 	
-	private String getFilenameFromTwitterId(Long twitterId) {
-		return twitterId.toString() + ".txt";
+	/**
+	 * Split the columns by number of entries so that workers get a similar share of the edges, and the vectors evenly
+	 */
+	private void partitionWork() {
+		
+		this.columnPartitions = this.matrix.partitionColumnsByEntries(this.parallelRangeExecutor.getNumberOfPartitions());
+		this.vectorPartitions = this.parallelRangeExecutor.partitionEvenly(getNumberOfTwittersIdsInFollowerGraph());
+		
 	}
 	
 	/**
-	 * Create transition probability matrix entries by going column by column. For each twitter id in master list, get the list of followers.
-	 * Create entries with value 1.0 for every follower of a twitter id.
-	 * @param followersFolder
+	 * Rank the Twitter IDs relative to a set of seeds. The walk teleports back to the seeds rather than to any Twitter ID,
+	 * so the Twitter IDs closest to the seeds in the follower graph rank highest. Every query runs on the graph loaded by
+	 * the constructor and on its worker threads, so queries may run at the same time.
+	 * @param teleportVector seeds to teleport to
+	 * @return personalized probability distribution vector
 	 */
-	private void createTransitionMatrixEntries(String followersFolder) {
+	public double[] getPersonalizedPageRank(TeleportVector teleportVector) {
 		
-		this.matrix = new HashMap<MatrixElement, Double>();
-		this.rowCounts = new HashMap<Integer, Integer>();
-		
-		FileWriter fileOperations = new FileWriter();
-		boolean listOfFollowersExists = false;
-		String fileName = null;
-		List<String> followerIds = null;
-		//Loop through twitter ids in master list
-		for (Long twitterId : this.twitterIds) {
-			
-			//Get list of followers
-			fileName = getFullFilePath(followersFolder, getFilenameFromTwitterId(twitterId));
-			listOfFollowersExists = fileOperations.fileExists(fileName);
-			if (listOfFollowersExists) {
-				try {
-					followerIds = fileOperations.getFileContents(fileName);
-					//Create transition matrix entries for column corresponding to twitter id
-					for (String followerId : followerIds) {
-						createFollowerLink(twitterId, Long.valueOf(followerId));
-					}
-				} catch (IOException e) {
-					e.printStackTrace();
-					continue;
-				} catch (NumberFormatException e) {
-					e.printStackTrace();
-					continue;
-				}
-			}
-			
-			
-		}
+		return getPersonalizedPageRank(teleportVector, teleportVector.toVector(getNumberOfTwittersIdsInFollowerGraph()));
 		
 	}
 	
 	/**
-	 * For each twitter id with a list of followers, create a follower link by setting the value to 1 for the column corresponding to the id being followed
-	 * @param twitterId
-	 * @param followerId
+	 * Rank the Twitter IDs relative to a set of seeds, starting the walk from the given vector, for example from the
+	 * result of a query with similar seeds
+	 * @param teleportVector seeds to teleport to
+	 * @param initialProbabilityVector starting vector adding up to 1
+	 * @return personalized probability distribution vector
 	 */
-	private void createFollowerLink(Long twitterId, Long followerId) {
+	public double[] getPersonalizedPageRank(TeleportVector teleportVector, double[] initialProbabilityVector) {
 		
-		int columnNumber = this.twitterIds.indexOf(twitterId);
-		int rowNumber = this.twitterIds.indexOf(followerId);
+		LOGGER.info("Do personalized random graph walk from " + teleportVector.size() + " seeds");
+		return doRandomWalk(initialProbabilityVector, teleportVector);
 		
-		if (columnNumber == 0) {
-			System.out.println("Creating follower link for row + " + rowNumber + " and column " + columnNumber);
-		}
+	}
+	
+	/**
+	 * Answer several personalized queries together. The walks advance in lockstep, so each step reads the matrix entries
+	 * once for all of them instead of once per query. The walks continue until every one of them has reached a steady
+	 * state or maximum iterations have been reached.
+	 * @param teleportVectors seeds to teleport to for every query
+	 * @return personalized probability distribution vector of every query
+	 */
+	public List<double[]> getPersonalizedPageRanks(List<TeleportVector> teleportVectors) {
+		
+		LOGGER.info("Do " + teleportVectors.size() + " personalized random graph walks");
+		return this.new BatchedRandomWalk(teleportVectors).walk();
 		
-		//Create the link with a value of 1. This will be normalized later.
-		this.matrix.put(new MatrixElement(rowNumber, columnNumber, getNumberOfTwittersIdsInFollowerGraph()), 1.0);
-		incrementRowCount(rowNumber);
 	}
 	
 	/**
-	 * Keep track of the number of follower links in a matrix row. Will be used later as a denominator to compute probability.
-	 * @param rowNumber
+	 * Stop the worker threads created by the constructor. An executor passed in by the caller is left to the caller. No
+	 * personalized queries can be answered afterwards.
 	 */
-	private void incrementRowCount(int rowNumber) {
+	public void shutdown() {
 		
-		if (this.rowCounts.containsKey(Integer.valueOf(rowNumber))) {
-			this.rowCounts.put(Integer.valueOf(rowNumber), Integer.valueOf(this.rowCounts.get(Integer.valueOf(rowNumber)).intValue() + 1));
-		} else {
-			this.rowCounts.put(Integer.valueOf(rowNumber), Integer.valueOf(1));
+		if (this.ownsParallelRangeExecutor) {
+			this.parallelRangeExecutor.shutdown();
 		}
 		
-		
 	}
 	
 	/**
-	 * For every row in transition matrix, divide each present entry by total number of entries to create transition probabilities
+	 * Walk from the given vector till it reaches a steady state or maximum iterations have been reached, stepping with the
+	 * configured solver
+	 * @param probabilityVector starting vector
+	 * @param teleportVector seeds to teleport to or null to teleport to any Twitter ID
+	 * @return
 	 */
-	private void normalizeTransitionProbabilityMatrixRows() {
+	private double[] doRandomWalk(double[] probabilityVector, TeleportVector teleportVector) {
+		
+		RandomWalkSettings.Solver solver = this.randomWalkSettings.getSolver();
+		//Number of steps in a row each component has hardly changed, which the adaptive solver stops recomputing it after
+		byte[] stableSteps = solver == RandomWalkSettings.Solver.ADAPTIVE ? new byte[getNumberOfTwittersIdsInFollowerGraph()] : null;
+		double[] teleportComponents = solver == RandomWalkSettings.Solver.GAUSS_SEIDEL && teleportVector != null ? teleportVector.toVector(getNumberOfTwittersIdsInFollowerGraph()) : null;
+		//Vectors of the last three steps, oldest first, kept for the extrapolation
+		double[][] earlierProbabilityVectors = solver == RandomWalkSettings.Solver.EXTRAPOLATION ? new double[3][] : null;
 		
-		int numberOfTwittersIdsInFollowerGraph = getNumberOfTwittersIdsInFollowerGraph(), numberOfElementsInRow = 0;
-		for (int twitterIdRowIndex = 0; twitterIdRowIndex < numberOfTwittersIdsInFollowerGraph; ++twitterIdRowIndex) {
-			if (this.rowCounts.containsKey(Integer.valueOf(twitterIdRowIndex))) {
-				numberOfElementsInRow = this.rowCounts.get(Integer.valueOf(twitterIdRowIndex)).intValue();
+		TransitionProbabilityMatrix.PageRankHelper pageRankHelper = this.new PageRankHelper();
+		while (!pageRankHelper.isConverged() && pageRankHelper.getRandownWalkCount() < this.randomWalkSettings.getMaximumRandomWalkCount()) {
+			LOGGER.info("Random walk step# " + pageRankHelper.getRandownWalkCount());
+			long stepStartNanos = STEP_TIME.start();
+			double[] newProbabilityVector;
+			if (solver == RandomWalkSettings.Solver.GAUSS_SEIDEL) {
+				newProbabilityVector = doOneGaussSeidelStep(probabilityVector, teleportVector, teleportComponents);
 			} else {
-				numberOfElementsInRow = 0;
+				newProbabilityVector = doOneRandomWalkStep(probabilityVector, teleportVector, stableSteps);
 			}
-			for (int twitterIdColumnIndex = 0; twitterIdColumnIndex < numberOfTwittersIdsInFollowerGraph; ++twitterIdColumnIndex) {
-				
-				//if (twitterIdColumnIndex == 0) {
-				//	System.out.println("Normalizing probability for row + " + twitterIdRowIndex + " and column 0.");
-				//}
-				
-				if (this.matrix.containsKey(new MatrixElement(twitterIdRowIndex, twitterIdColumnIndex, numberOfTwittersIdsInFollowerGraph))) {
-					this.matrix.put(new MatrixElement(twitterIdRowIndex, twitterIdColumnIndex, numberOfTwittersIdsInFollowerGraph), numberOfElementsInRow != 0 ? Double.valueOf((1 - this.teleportationRate)/numberOfElementsInRow) : 0.0);
-					//System.out.println("Normalized transition matrix for row " + twitterIdRowIndex + " and column " + twitterIdColumnIndex);
+			if (earlierProbabilityVectors != null) {
+				earlierProbabilityVectors[0] = earlierProbabilityVectors[1];
+				earlierProbabilityVectors[1] = earlierProbabilityVectors[2];
+				earlierProbabilityVectors[2] = probabilityVector;
+				if (earlierProbabilityVectors[0] != null && (pageRankHelper.getRandownWalkCount() + 1) % EXTRAPOLATION_INTERVAL == 0) {
+					extrapolate(earlierProbabilityVectors[0], earlierProbabilityVectors[1], earlierProbabilityVectors[2], newProbabilityVector);
 				}
 			}
+			//Only plain power iteration keeps the total at exactly 1
+			if (solver != RandomWalkSettings.Solver.POWER) {
+				normalize(newProbabilityVector);
+			}
+			pageRankHelper.updateResidual(probabilityVector, newProbabilityVector);
+			if (stableSteps != null) {
+				countStableSteps(probabilityVector, newProbabilityVector, stableSteps);
+			}
+			pageRankHelper.incrementRandownWalkCount();
+			probabilityVector = newProbabilityVector;
+			STEP_TIME.stop(stepStartNanos);
+			RANDOM_WALK_STEPS.increment();
+			RESIDUAL.set(pageRankHelper.getResidual());
+			if (isReportStep(pageRankHelper.getRandownWalkCount())) {
+				printPageRank(probabilityVector, pageRankHelper.getResidual(), "PageRank");
+			}
 		}
-		
+		if (!isReportStep(pageRankHelper.getRandownWalkCount())) {
+			printPageRank(probabilityVector, pageRankHelper.getResidual(), "PageRank");
+		}
+		return probabilityVector;
 		
 	}
 	
 	/**
-	 * Keep doing a random follower graph walk till the probability vector reaches a stead state or maximum iterations have been reached.
+	 * @param randomWalkCount number of steps done
+	 * @return true if the top page ranks are to be printed after the step
 	 */
-	private void doRandomWalkOnFollowerGraph() {
-		
-		//Create page rank vector and start at the first node 
-		this.probabilityDistributionVector = new double[getNumberOfTwittersIdsInFollowerGraph()];
-		this.probabilityDistributionVector[0] = 1.0;
+	private boolean isReportStep(int randomWalkCount) {
+		int reportInterval = this.randomWalkSettings.getReportInterval();
+		return reportInterval > 0 && randomWalkCount % reportInterval == 0;
+	}
+	
+	/**
+	 * Do one random walk step
+	 * 
+	 * @param oldProbabilityVector
+	 * @param teleportVector seeds to teleport to or null to teleport to any Twitter ID
+	 * @param stableSteps stable step count of every component, components that have reached ADAPTIVE_STABLE_STEPS keep
+	 * their old value. Null to compute every component.
+	 * @return updated probability vector
+	 */
+	double[] doOneRandomWalkStep(final double[] oldProbabilityVector, TeleportVector teleportVector, final byte[] stableSteps) {
+	
+		final double[] newProbabilityVector= new double[getNumberOfTwittersIdsInFollowerGraph()];
+		double teleportedProbability = getTeleportedProbability(oldProbabilityVector);
+		
+		//Every column of the teleportation matrix is identical, so its product with the vector is one scalar for all components
+		final double teleportationContribution = teleportVector == null ? teleportedProbability / getNumberOfTwittersIdsInFollowerGraph() : 0.0;
+		
+		//Each worker fills in its own range of components
+		this.parallelRangeExecutor.forEachRange(this.columnPartitions, new ParallelRangeExecutor.RangeAction() {
+			@Override
+			public void run(int rangeStart, int rangeEnd) {
+				for (int probabilityVectorComponentIndex = rangeStart; probabilityVectorComponentIndex < rangeEnd; ++probabilityVectorComponentIndex) {
+					if (stableSteps != null && stableSteps[probabilityVectorComponentIndex] >= ADAPTIVE_STABLE_STEPS) {
+						newProbabilityVector[probabilityVectorComponentIndex] = oldProbabilityVector[probabilityVectorComponentIndex];
+					} else {
+						newProbabilityVector[probabilityVectorComponentIndex] = teleportationContribution + matrix.multiplyWithColumn(oldProbabilityVector, probabilityVectorComponentIndex);
+					}
+				}
+			}
+		});
 		
-		TransitionProbabilityMatrix.PageRankHelper pageRankHelper = this.new PageRankHelper();
-		while (pageRankHelper.getVectorSimilarity() < VECTOR_SIMILARITY_TARGET && pageRankHelper.getRandownWalkCount() < MAXIMUM_RANDOM_WALK_COUNT) {
-			System.out.println("Random walk step# " + pageRankHelper.getRandownWalkCount());
-			pageRankHelper = doOneRandomWalkStep(pageRankHelper);
-			printPageRank(pageRankHelper.getVectorSimilarity());
+		//A personalized walk only teleports to its seeds
+		if (teleportVector != null) {
+			for (int seedIndex = 0; seedIndex < teleportVector.size(); ++seedIndex) {
+				if (stableSteps == null || stableSteps[teleportVector.getIndex(seedIndex)] < ADAPTIVE_STABLE_STEPS) {
+					newProbabilityVector[teleportVector.getIndex(seedIndex)] += teleportVector.getWeight(seedIndex) * teleportedProbability;
+				}
+			}
 		}
 		
+		return newProbabilityVector;
 		
 	}
 	
 	/**
-	 * Do one random walk step and return the updated walk count and vector similarity measure between old and updated probability vector. 
-	 * These will be used to decide whether to terminate the random walk or not.
+	 * Do one Gauss-Seidel sweep. Each component is computed from the components before it that have already been updated
+	 * in this sweep, which moves the vector further per pass over the matrix entries. Workers only use the updates of their
+	 * own range, so the result does not depend on the order in which they run. The probability teleported in the sweep is
+	 * taken from the old vector.
 	 * 
-	 * @param pageRankHelper
-	 * @return
+	 * @param oldProbabilityVector
+	 * @param teleportVector seeds to teleport to or null to teleport to any Twitter ID
+	 * @param teleportComponents the seeds of the teleport vector as a dense vector
+	 * @return updated probability vector, not yet normalized
 	 */
-	private TransitionProbabilityMatrix.PageRankHelper doOneRandomWalkStep(TransitionProbabilityMatrix.PageRankHelper pageRankHelper) {
-	
-		double[] newProbabilityVector= new double[getNumberOfTwittersIdsInFollowerGraph()];;
-		int numberOfTwittersIdsInFollowerGraph = getNumberOfTwittersIdsInFollowerGraph();
+	private double[] doOneGaussSeidelStep(final double[] oldProbabilityVector, TeleportVector teleportVector, final double[] teleportComponents) {
+		
+		final double[] newProbabilityVector= new double[getNumberOfTwittersIdsInFollowerGraph()];
+		final double teleportedProbability = getTeleportedProbability(oldProbabilityVector);
+		final double teleportationContribution = teleportVector == null ? teleportedProbability / getNumberOfTwittersIdsInFollowerGraph() : 0.0;
+		
+		this.parallelRangeExecutor.forEachRange(this.columnPartitions, new ParallelRangeExecutor.RangeAction() {
+			@Override
+			public void run(int rangeStart, int rangeEnd) {
+				for (int probabilityVectorComponentIndex = rangeStart; probabilityVectorComponentIndex < rangeEnd; ++probabilityVectorComponentIndex) {
+					double componentTeleportation = teleportComponents == null ? teleportationContribution : teleportComponents[probabilityVectorComponentIndex] * teleportedProbability;
+					newProbabilityVector[probabilityVectorComponentIndex] = componentTeleportation + matrix.multiplyWithColumn(oldProbabilityVector, newProbabilityVector, rangeStart, probabilityVectorComponentIndex, probabilityVectorComponentIndex);
+				}
+			}
+		});
 		
-		for (int probabilityVectorComponentIndex = 0; probabilityVectorComponentIndex < numberOfTwittersIdsInFollowerGraph; ++probabilityVectorComponentIndex) {
-			
-			multiplyWithTransitionMatrixColumn(this.probabilityDistributionVector, newProbabilityVector, probabilityVectorComponentIndex);
-			
+		return newProbabilityVector;
+		
+	}
+	
+	/**
+	 * Replace the newest vector by its quadratic extrapolation from the last four vectors. The error left after a few steps
+	 * is mostly made up of the two eigenvectors of the next largest eigenvalues, which may be a complex pair that makes
+	 * the residual oscillate. The extrapolation fits the last vectors with those two eigenvectors by least squares and
+	 * removes them in one go.
+	 * 
+	 * @param thirdLastProbabilityVector
+	 * @param secondLastProbabilityVector
+	 * @param lastProbabilityVector
+	 * @param newProbabilityVector
+	 */
+	private void extrapolate(final double[] thirdLastProbabilityVector, final double[] secondLastProbabilityVector, final double[] lastProbabilityVector, final double[] newProbabilityVector) {
+		
+		//Products of the differences to the oldest vector, needed for the least squares fit
+		List<double[]> rangeProducts = this.parallelRangeExecutor.run(this.vectorPartitions, new ParallelRangeExecutor.RangeTask<double[]>() {
+			@Override
+			public double[] run(int rangeStart, int rangeEnd) {
+				double[] products = new double[5];
+				for (int vectorComponentIndex = rangeStart; vectorComponentIndex < rangeEnd; ++vectorComponentIndex) {
+					double firstDifference = secondLastProbabilityVector[vectorComponentIndex] - thirdLastProbabilityVector[vectorComponentIndex];
+					double secondDifference = lastProbabilityVector[vectorComponentIndex] - thirdLastProbabilityVector[vectorComponentIndex];
+					double thirdDifference = newProbabilityVector[vectorComponentIndex] - thirdLastProbabilityVector[vectorComponentIndex];
+					products[0] += firstDifference * firstDifference;
+					products[1] += firstDifference * secondDifference;
+					products[2] += secondDifference * secondDifference;
+					products[3] += firstDifference * thirdDifference;
+					products[4] += secondDifference * thirdDifference;
+				}
+				return products;
+			}
+		});
+		double[] products = new double[5];
+		for (double[] rangeProduct : rangeProducts) {
+			for (int productIndex = 0; productIndex < products.length; ++productIndex) {
+				products[productIndex] += rangeProduct[productIndex];
+			}
 		}
 		
-		pageRankHelper.updateVectorSimilarity(this.probabilityDistributionVector, newProbabilityVector);
-		pageRankHelper.incrementRandownWalkCount();
-		this.probabilityDistributionVector = newProbabilityVector;
-
-		return pageRankHelper;
+		double determinant = products[0] * products[2] - products[1] * products[1];
+		if (determinant <= 0.0 || Double.isNaN(determinant)) {
+			return;
+		}
+		double firstCoefficient = -(products[2] * products[3] - products[1] * products[4]) / determinant;
+		double secondCoefficient = -(products[0] * products[4] - products[1] * products[3]) / determinant;
+		final double thirdLastWeight = firstCoefficient + secondCoefficient + 1.0;
+		final double secondLastWeight = secondCoefficient + 1.0;
+		
+		this.parallelRangeExecutor.forEachRange(this.vectorPartitions, new ParallelRangeExecutor.RangeAction() {
+			@Override
+			public void run(int rangeStart, int rangeEnd) {
+				for (int vectorComponentIndex = rangeStart; vectorComponentIndex < rangeEnd; ++vectorComponentIndex) {
+					double extrapolatedComponent = thirdLastWeight * secondLastProbabilityVector[vectorComponentIndex] + secondLastWeight * lastProbabilityVector[vectorComponentIndex] + newProbabilityVector[vectorComponentIndex];
+					//A probability cannot be negative, so keep the component as it was where the fit says otherwise
+					if (extrapolatedComponent > 0.0) {
+						newProbabilityVector[vectorComponentIndex] = extrapolatedComponent;
+					}
+				}
+			}
+		});
 		
 	}
 	
 	/**
-	 * Multiple the probability vector with a column of the transition probability vector.
+	 * Count the steps in a row each component has changed by no more than the adaptive tolerance relative to its value
 	 * 
 	 * @param oldProbabilityVector
 	 * @param newProbabilityVector
-	 * @param transitionMatrixColumnNumber
+	 * @param stableSteps
 	 */
-	private void multiplyWithTransitionMatrixColumn(double[] oldProbabilityVector, double[] newProbabilityVector, int transitionMatrixColumnNumber) {
+	private void countStableSteps(final double[] oldProbabilityVector, final double[] newProbabilityVector, final byte[] stableSteps) {
+		
+		final double adaptiveTolerance = this.randomWalkSettings.getAdaptiveTolerance();
+		this.parallelRangeExecutor.forEachRange(this.vectorPartitions, new ParallelRangeExecutor.RangeAction() {
+			@Override
+			public void run(int rangeStart, int rangeEnd) {
+				for (int vectorComponentIndex = rangeStart; vectorComponentIndex < rangeEnd; ++vectorComponentIndex) {
+					if (stableSteps[vectorComponentIndex] >= ADAPTIVE_STABLE_STEPS) {
+						continue;
+					}
+					//A component the walk has not reached yet is not stable, however little it changes
+					if (newProbabilityVector[vectorComponentIndex] > 0.0 && Math.abs(newProbabilityVector[vectorComponentIndex] - oldProbabilityVector[vectorComponentIndex]) <= adaptiveTolerance * newProbabilityVector[vectorComponentIndex]) {
+						++stableSteps[vectorComponentIndex];
+					} else {
+						stableSteps[vectorComponentIndex] = 0;
+					}
+				}
+			}
+		});
 		
-		int transitionMatrixRows = getNumberOfTwittersIdsInFollowerGraph();
-		for (int transitionMatrixRowIndex = 0; transitionMatrixRowIndex < transitionMatrixRows; ++transitionMatrixRowIndex) {
-			
-			newProbabilityVector[transitionMatrixColumnNumber] += oldProbabilityVector[transitionMatrixRowIndex] * (this.teleportationMatrixEntry +
-																 (this.matrix.containsKey(new MatrixElement(transitionMatrixRowIndex, transitionMatrixColumnNumber, transitionMatrixRows)) ? 
-																  this.matrix.get(new MatrixElement(transitionMatrixRowIndex, transitionMatrixColumnNumber, transitionMatrixRows)).doubleValue() : 
-																  0.0));
-		}
+	}
+	
+	/**
+	 * Scale the vector to a total of 1
+	 * 
+	 * @param probabilityVector
+	 */
+	private void normalize(final double[] probabilityVector) {
+		
+		final double probabilityVectorTotal = this.parallelRangeExecutor.sum(this.vectorPartitions, new ParallelRangeExecutor.RangeComputation() {
+			@Override
+			public double compute(int rangeStart, int rangeEnd) {
+				double rangeTotal = 0.0;
+				for (int vectorComponentIndex = rangeStart; vectorComponentIndex < rangeEnd; ++vectorComponentIndex) {
+					rangeTotal += probabilityVector[vectorComponentIndex];
+				}
+				return rangeTotal;
+			}
+		});
+		
+		this.parallelRangeExecutor.forEachRange(this.vectorPartitions, new ParallelRangeExecutor.RangeAction() {
+			@Override
+			public void run(int rangeStart, int rangeEnd) {
+				for (int vectorComponentIndex = rangeStart; vectorComponentIndex < rangeEnd; ++vectorComponentIndex) {
+					probabilityVector[vectorComponentIndex] /= probabilityVectorTotal;
+				}
+			}
+		});
 		
 	}
 	
 	/**
-	 * Helper class for controlling PageRank iterations.
+	 * Compute the probability of teleporting in the next step. The walk teleports at the teleportation rate from a Twitter ID
+	 * that follows others, and always from one that follows no one, so that no probability leaks out of the vector.
+	 * 
+	 * @param probabilityVector
+	 * @return
+	 */
+	private double getTeleportedProbability(final double[] probabilityVector) {
+		
+		return this.parallelRangeExecutor.sum(this.vectorPartitions, new ParallelRangeExecutor.RangeComputation() {
+			@Override
+			public double compute(int rangeStart, int rangeEnd) {
+				double rangeTotal = 0.0, danglingTotal = 0.0;
+				for (int vectorComponentIndex = rangeStart; vectorComponentIndex < rangeEnd; ++vectorComponentIndex) {
+					rangeTotal += probabilityVector[vectorComponentIndex];
+					if (matrix.getRowCount(vectorComponentIndex) == 0) {
+						danglingTotal += probabilityVector[vectorComponentIndex];
+					}
+				}
+				return teleportationRate * rangeTotal + (1 - teleportationRate) * danglingTotal;
+			}
+		});
+		
+	}
+	
+	/**
+	 * Random walks of several personalized queries done together. The vectors of all walks are interleaved in one array,
+	 * component i of walk w being at index i * numberOfWalks + w, so that the components a matrix entry is multiplied with
+	 * sit next to each other in memory.
 	 *
 	 */
-	class PageRankHelper {
+	class BatchedRandomWalk {
 		
-		private double vectorSimilarity;
-		private int randownWalkCount;
+		private List<TeleportVector> teleportVectors;
+		private int numberOfWalks;
+		private double[] probabilityVectors;
+		private double[] residuals;
 		
-		public PageRankHelper() {
-			this.vectorSimilarity = 0.0;
-			this.randownWalkCount = 0;
+		public BatchedRandomWalk(List<TeleportVector> teleportVectors) {
+			
+			this.teleportVectors = teleportVectors;
+			this.numberOfWalks = teleportVectors.size();
+			this.probabilityVectors = new double[getNumberOfTwittersIdsInFollowerGraph() * this.numberOfWalks];
+			this.residuals = new double[this.numberOfWalks];
+			Arrays.fill(this.residuals, Double.POSITIVE_INFINITY);
+			
+			//Every walk starts at its seeds
+			for (int walkIndex = 0; walkIndex < this.numberOfWalks; ++walkIndex) {
+				TeleportVector teleportVector = teleportVectors.get(walkIndex);
+				for (int seedIndex = 0; seedIndex < teleportVector.size(); ++seedIndex) {
+					this.probabilityVectors[teleportVector.getIndex(seedIndex) * this.numberOfWalks + walkIndex] += teleportVector.getWeight(seedIndex);
+				}
+			}
+			
 		}
 		
-		public double getVectorSimilarity() {
-			return vectorSimilarity;
-		}
-		public void setVectorSimilarity(double vectorSimilarity) {
-			this.vectorSimilarity = vectorSimilarity;
-		}
-		public int getRandownWalkCount() {
-			return randownWalkCount;
-		}
-		public void setRandownWalkCount(int randownWalkCount) {
-			this.randownWalkCount = randownWalkCount;
-		}
-		public void incrementRandownWalkCount() {
-			++this.randownWalkCount;
-		}
-		public void updateVectorSimilarity(double[] oldVector, double[] newVector) {
+		public List<double[]> walk() {
+			
+			int randomWalkCount = 0;
+			while (getHighestResidual() > randomWalkSettings.getResidualTolerance() && randomWalkCount < randomWalkSettings.getMaximumRandomWalkCount()) {
+				LOGGER.info("Batched random walk step# " + randomWalkCount);
+				long stepStartNanos = BATCHED_STEP_TIME.start();
+				doOneRandomWalkStep();
+				++randomWalkCount;
+				BATCHED_STEP_TIME.stop(stepStartNanos);
+				RANDOM_WALK_STEPS.increment();
+				RESIDUAL.set(getHighestResidual());
+			}
+			
+			List<double[]> pageRankVectors = new ArrayList<double[]>(this.numberOfWalks);
+			for (int walkIndex = 0; walkIndex < this.numberOfWalks; ++walkIndex) {
+				double[] pageRankVector = new double[getNumberOfTwittersIdsInFollowerGraph()];
+				for (int vectorComponentIndex = 0; vectorComponentIndex < pageRankVector.length; ++vectorComponentIndex) {
+					pageRankVector[vectorComponentIndex] = this.probabilityVectors[vectorComponentIndex * this.numberOfWalks + walkIndex];
+				}
+				printPageRank(pageRankVector, this.residuals[walkIndex], "Personalized query " + walkIndex + " from " + this.teleportVectors.get(walkIndex).size() + " seeds");
+				pageRankVectors.add(pageRankVector);
+			}
+			return pageRankVectors;
 			
-			this.vectorSimilarity = getDotProduct(oldVector, newVector) / (getVectorMagnitude(oldVector) * getVectorMagnitude(newVector));
 		}
 		
-		private double getDotProduct(double[] oldVector, double[] newVector) {
+		private void doOneRandomWalkStep() {
 			
-			double dotProduct = 0.0;
-			int oldVectorLength = oldVector.length;
+			final double[] oldProbabilityVectors = this.probabilityVectors;
+			final double[] newProbabilityVectors = new double[oldProbabilityVectors.length];
+			final int numberOfWalks = this.numberOfWalks;
+			double[] teleportedProbabilities = getTeleportedProbabilities(oldProbabilityVectors);
+			
+			parallelRangeExecutor.forEachRange(columnPartitions, new ParallelRangeExecutor.RangeAction() {
+				@Override
+				public void run(int rangeStart, int rangeEnd) {
+					for (int probabilityVectorComponentIndex = rangeStart; probabilityVectorComponentIndex < rangeEnd; ++probabilityVectorComponentIndex) {
+						matrix.multiplyWithColumn(oldProbabilityVectors, numberOfWalks, probabilityVectorComponentIndex, newProbabilityVectors, probabilityVectorComponentIndex * numberOfWalks);
+					}
+				}
+			});
 			
-			if (oldVectorLength == newVector.length) {
-				
-				for (int vectorComponentIndex = 0; vectorComponentIndex < oldVectorLength; ++vectorComponentIndex) {
-					dotProduct += oldVector[vectorComponentIndex] * newVector[vectorComponentIndex];
+			for (int walkIndex = 0; walkIndex < numberOfWalks; ++walkIndex) {
+				TeleportVector teleportVector = this.teleportVectors.get(walkIndex);
+				for (int seedIndex = 0; seedIndex < teleportVector.size(); ++seedIndex) {
+					newProbabilityVectors[teleportVector.getIndex(seedIndex) * numberOfWalks + walkIndex] += teleportVector.getWeight(seedIndex) * teleportedProbabilities[walkIndex];
 				}
-				
 			}
 			
-			return dotProduct;
+			updateResiduals(oldProbabilityVectors, newProbabilityVectors);
+			this.probabilityVectors = newProbabilityVectors;
 			
 		}
 		
+		private double[] getTeleportedProbabilities(final double[] probabilityVectors) {
+			
+			final int numberOfWalks = this.numberOfWalks;
+			List<double[]> rangeTotals = parallelRangeExecutor.run(vectorPartitions, new ParallelRangeExecutor.RangeTask<double[]>() {
+				@Override
+				public double[] run(int rangeStart, int rangeEnd) {
+					double[] totals = new double[numberOfWalks];
+					for (int vectorComponentIndex = rangeStart; vectorComponentIndex < rangeEnd; ++vectorComponentIndex) {
+						double rowTeleportationRate = matrix.getRowCount(vectorComponentIndex) == 0 ? 1.0 : teleportationRate;
+						for (int walkIndex = 0; walkIndex < numberOfWalks; ++walkIndex) {
+							totals[walkIndex] += rowTeleportationRate * probabilityVectors[vectorComponentIndex * numberOfWalks + walkIndex];
+						}
+					}
+					return totals;
+				}
+			});
+			return addUp(rangeTotals);
+			
+		}
 		
-		private double getVectorMagnitude(double[] vector) {
+		/**
+		 * Residual of every walk, with the norms of all walks gathered in one pass
+		 * @param oldProbabilityVectors
+		 * @param newProbabilityVectors
+		 */
+		private void updateResiduals(final double[] oldProbabilityVectors, final double[] newProbabilityVectors) {
 			
-			int vectorLength = vector.length;
-			double vectorMagnitude = 0.0;
+			final int numberOfWalks = this.numberOfWalks;
+			final boolean maximumNorm = randomWalkSettings.getResidualNorm() == RandomWalkSettings.ResidualNorm.MAXIMUM;
+			List<double[]> rangeResiduals = parallelRangeExecutor.run(vectorPartitions, new ParallelRangeExecutor.RangeTask<double[]>() {
+				@Override
+				public double[] run(int rangeStart, int rangeEnd) {
+					double[] residuals = new double[numberOfWalks];
+					for (int vectorComponentIndex = rangeStart; vectorComponentIndex < rangeEnd; ++vectorComponentIndex) {
+						for (int walkIndex = 0; walkIndex < numberOfWalks; ++walkIndex) {
+							int position = vectorComponentIndex * numberOfWalks + walkIndex;
+							double change = Math.abs(newProbabilityVectors[position] - oldProbabilityVectors[position]);
+							residuals[walkIndex] = maximumNorm ? Math.max(residuals[walkIndex], change) : residuals[walkIndex] + change;
+						}
+					}
+					return residuals;
+				}
+			});
 			
-			for (int vectorComponentIndex = 0; vectorComponentIndex < vectorLength; ++vectorComponentIndex) {
-				vectorMagnitude += Math.pow(vector[vectorComponentIndex], 2.0);
+			Arrays.fill(this.residuals, 0.0);
+			for (double[] rangeResidual : rangeResiduals) {
+				for (int walkIndex = 0; walkIndex < numberOfWalks; ++walkIndex) {
+					this.residuals[walkIndex] = maximumNorm ? Math.max(this.residuals[walkIndex], rangeResidual[walkIndex]) : this.residuals[walkIndex] + rangeResidual[walkIndex];
+				}
 			}
 			
-			return Math.sqrt(vectorMagnitude);
-			
 		}
+		
+		private double getHighestResidual() {
+			double highestResidual = 0.0;
+			for (double residual : this.residuals) {
+				highestResidual = Math.max(highestResidual, residual);
+			}
+			return highestResidual;
+		}
+		
+		/**
+		 * Add up the results of the ranges in range order
+		 * @param rangeResults
+		 * @return
+		 */
+		private double[] addUp(List<double[]> rangeResults) {
+			double[] total = new double[rangeResults.get(0).length];
+			for (double[] rangeResult : rangeResults) {
+				for (int resultIndex = 0; resultIndex < total.length; ++resultIndex) {
+					total[resultIndex] += rangeResult[resultIndex];
+				}
+			}
+			return total;
+		}
+		
 	}
 	
-	public int getNumberOfTwittersIdsInFollowerGraph() {
-		return this.twitterIds.size();
-	}
-	
-	class PageRankEntry implements Comparable<PageRankEntry> {
+	/**
+	 * Helper class for controlling PageRank iterations. The walk has converged once a step changes the probability vector
+	 * by less than the residual tolerance.
+	 *
+	 */
+	class PageRankHelper {
 		
-		int index;
-		double pageRank;
+		private double residual;
+		private int randownWalkCount;
 		
-		public PageRankEntry(int index, double pageRank) {
-			this.index = index;
-			this.pageRank = pageRank;
+		public PageRankHelper() {
+			this.residual = Double.POSITIVE_INFINITY;
+			this.randownWalkCount = 0;
 		}
 		
-		public int getIndex() {
-			return index;
+		public double getResidual() {
+			return residual;
 		}
-
-		public double getPageRank() {
-			return pageRank;
+		public void setResidual(double residual) {
+			this.residual = residual;
+		}
+		public int getRandownWalkCount() {
+			return randownWalkCount;
+		}
+		public void setRandownWalkCount(int randownWalkCount) {
+			this.randownWalkCount = randownWalkCount;
+		}
+		public void incrementRandownWalkCount() {
+			++this.randownWalkCount;
+		}
+		public boolean isConverged() {
+			return this.residual <= randomWalkSettings.getResidualTolerance();
 		}
 		
-		//Method for descending sort
-		@Override
-		public int compareTo(PageRankEntry object) {
+		/**
+		 * Measure the change between the old and new vector in the configured norm
+		 * @param oldVector
+		 * @param newVector
+		 */
+		public void updateResidual(final double[] oldVector, final double[] newVector) {
 			
-			double otherValue = ((PageRankEntry) object).getPageRank();
-			double testValue = this.pageRank - otherValue;
-			if (testValue == 0.0) {
-				return 0;
-			} else if (testValue > 0) {
-				return -1;
+			if (randomWalkSettings.getResidualNorm() == RandomWalkSettings.ResidualNorm.MAXIMUM) {
+				List<Double> rangeResiduals = parallelRangeExecutor.run(vectorPartitions, new ParallelRangeExecutor.RangeTask<Double>() {
+					@Override
+					public Double run(int rangeStart, int rangeEnd) {
+						double rangeResidual = 0.0;
+						for (int vectorComponentIndex = rangeStart; vectorComponentIndex < rangeEnd; ++vectorComponentIndex) {
+							rangeResidual = Math.max(rangeResidual, Math.abs(newVector[vectorComponentIndex] - oldVector[vectorComponentIndex]));
+						}
+						return Double.valueOf(rangeResidual);
+					}
+				});
+				this.residual = Collections.max(rangeResiduals).doubleValue();
 			} else {
-				return +1;
+				this.residual = parallelRangeExecutor.sum(vectorPartitions, new ParallelRangeExecutor.RangeComputation() {
+					@Override
+					public double compute(int rangeStart, int rangeEnd) {
+						double rangeResidual = 0.0;
+						for (int vectorComponentIndex = rangeStart; vectorComponentIndex < rangeEnd; ++vectorComponentIndex) {
+							rangeResidual += Math.abs(newVector[vectorComponentIndex] - oldVector[vectorComponentIndex]);
+						}
+						return rangeResidual;
+					}
+				});
 			}
 			
 		}
-		
 	}
 	
-	private void printPageRank(double vectorSimilarity) {
-				
-		//Fill List of PageRankVector objects
-		List<PageRankEntry> pageRanksList = new ArrayList<PageRankEntry>();
-		int counter = 0;
-		for (double rank : this.probabilityDistributionVector) {
-			pageRanksList.add(new PageRankEntry(counter++, rank));
+	public int getNumberOfTwittersIdsInFollowerGraph() {
+		return this.twitterIds.size();
+	}
+	
+	/**
+	 * @return Twitter ID of every probability vector component, for example to create teleport vectors from
+	 */
+	public TwitterIdDictionary getTwitterIds() {
+		return this.twitterIds;
+	}
+	
+	/**
+	 * @return converged ranking of the walk done by the constructor
+	 */
+	public double[] getProbabilityDistributionVector() {
+		return this.probabilityDistributionVector;
+	}
+	
+	/**
+	 * Print the top page ranks. Only the top entries are selected, each worker keeping the best of its own range in a heap,
+	 * so the vector is neither copied nor sorted. The whole table goes to the log as one message.
+	 * @param pageRankVector
+	 * @param residual
+	 * @param heading first line of the message
+	 */
+	private void printPageRank(final double[] pageRankVector, double residual, String heading) {
+		
+		if (!LOGGER.isEnabled(Level.INFO)) {
+			return;
+		}
+		final int topPageRanksToSelect = Math.min(this.topPageRanksToPrint, pageRankVector.length);
+		List<TopRankSelector> rangeSelectors = this.parallelRangeExecutor.run(this.vectorPartitions, new ParallelRangeExecutor.RangeTask<TopRankSelector>() {
+			@Override
+			public TopRankSelector run(int rangeStart, int rangeEnd) {
+				TopRankSelector topRankSelector = new TopRankSelector(topPageRanksToSelect);
+				topRankSelector.offerAll(pageRankVector, rangeStart, rangeEnd);
+				return topRankSelector;
+			}
+		});
+		TopRankSelector topRankSelector = new TopRankSelector(topPageRanksToSelect);
+		for (TopRankSelector rangeSelector : rangeSelectors) {
+			topRankSelector.offerAll(rangeSelector);
 		}
-
-		//Sort the page ranks
-		System.out.println(Calendar.getInstance().getTime().toString() + " Sorting the page ranks");
-		Collections.sort(pageRanksList);
 		
-		System.out.println("PageRank is:");
-
 		//Print the top page ranks
-		counter = 0;
-		for (PageRankEntry pageRankEntry : pageRanksList) {
-			if (counter++ < this.topPageRanksToPrint) {
-				System.out.println(Calendar.getInstance().getTime().toString() + ", Vector Similarity " + Double.valueOf(vectorSimilarity).toString() + ", Page Rank Index: " + Integer.valueOf(pageRankEntry.getIndex()).toString() + ", Page Rank Value " + pageRankEntry.getPageRank() + ", Twitter ID  " + Long.valueOf(this.twitterIds.get(pageRankEntry.getIndex())).toString());
-			} else {
-				break;
-			}
+		StringBuilder pageRankTable = new StringBuilder(heading).append(" with residual ").append(residual).append(" is:");
+		for (int pageRankIndex : topRankSelector.getIndexes()) {
+			pageRankTable.append(System.lineSeparator()).append("Page Rank Index: ").append(pageRankIndex);
+			pageRankTable.append(", Page Rank Value ").append(pageRankVector[pageRankIndex]).append(", Twitter ID ").append(this.twitterIds.getTwitterId(pageRankIndex));
 		}
+		LOGGER.info(pageRankTable.toString());
 		
 	}
 	
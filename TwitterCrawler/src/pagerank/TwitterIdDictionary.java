@@ -0,0 +1,117 @@
+package pagerank;
+
+import java.util.Arrays;
+
+import file.io.TwitterIdHashTable;
+
+/**
+ * Dictionary assigning dense matrix indexes 0, 1, 2... to Twitter IDs. Lookups go through a TwitterIdHashTable kept at
+ * most half full, and the reverse mapping from index to Twitter ID is a plain long array.
+ *
+ */
+public class TwitterIdDictionary {
+
+	public static final int DEFAULT_INITIAL_CAPACITY = 1024;
+	public static final int NOT_FOUND = TwitterIdHashTable.NOT_FOUND;
+	//Looked up for every follower link while the graph is built, so probes are kept short
+	public static final int MAXIMUM_LOAD_PERCENT = 50;
+
+	private TwitterIdHashTable indexes;
+	private long[] twitterIds;
+	private int size;
+
+	public TwitterIdDictionary() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+
+	public TwitterIdDictionary(int expectedSize) {
+		this.twitterIds = new long[Math.max(expectedSize, 1)];
+		this.size = 0;
+		this.indexes = new TwitterIdHashTable(expectedSize, true, MAXIMUM_LOAD_PERCENT);
+	}
+
+	/**
+	 * Create the dictionary from Twitter IDs that already have their indexes, such as those read from a graph snapshot.
+	 * The hash table is only built when an index is first looked up.
+	 * @param twitterIds Twitter ID for every index
+	 */
+	public TwitterIdDictionary(long[] twitterIds) {
+		this.twitterIds = twitterIds;
+		this.size = twitterIds.length;
+	}
+
+	/**
+	 * Add the Twitter ID if it is not already present
+	 * @param twitterId
+	 * @return index of the Twitter ID
+	 */
+	public int add(long twitterId) {
+
+		ensureIndexes();
+		int index = this.indexes.putIfAbsent(twitterId, this.size);
+		if (index != NOT_FOUND) {
+			return index;
+		}
+
+		if (this.size == this.twitterIds.length) {
+			this.twitterIds = Arrays.copyOf(this.twitterIds, this.twitterIds.length + (this.twitterIds.length >> 1) + 1);
+		}
+		this.twitterIds[this.size] = twitterId;
+		return this.size++;
+
+	}
+
+	/**
+	 * @param twitterId
+	 * @return index of the Twitter ID or NOT_FOUND if it has not been added
+	 */
+	public int getIndex(long twitterId) {
+		ensureIndexes();
+		return this.indexes.get(twitterId);
+	}
+
+	public boolean contains(long twitterId) {
+		return getIndex(twitterId) != NOT_FOUND;
+	}
+
+	public long getTwitterId(int index) {
+		return this.twitterIds[index];
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Renumber the indexes so that they follow ascending Twitter ID order
+	 * @return array giving the new index for every old index
+	 */
+	public int[] sortByTwitterId() {
+
+		ensureIndexes();
+		long[] sortedTwitterIds = Arrays.copyOf(this.twitterIds, this.size);
+		Arrays.sort(sortedTwitterIds);
+
+		int[] newIndexes = new int[this.size];
+		for (int newIndex = 0; newIndex < this.size; ++newIndex) {
+			newIndexes[this.indexes.get(sortedTwitterIds[newIndex])] = newIndex;
+			this.indexes.put(sortedTwitterIds[newIndex], newIndex);
+		}
+		this.twitterIds = sortedTwitterIds;
+
+		return newIndexes;
+
+	}
+
+	private void ensureIndexes() {
+
+		if (this.indexes == null) {
+			this.indexes = new TwitterIdHashTable(this.size, true, MAXIMUM_LOAD_PERCENT);
+			for (int index = 0; index < this.size; ++index) {
+				this.indexes.putIfAbsent(this.twitterIds[index], index);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,412 @@
+package simulator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import file.io.TwitterIdBuffer;
+
+/**
+ * Local stand in for the parts of the Twitter REST API used by the crawler, answering from a synthetic follower graph.
+ * It serves cursor paged followers/ids responses and account/verify_credentials, and enforces a fixed rate limit window
+ * per access token with the same rate limit headers and errors as the real API. A credential slot is directed at it with
+ * n.restBaseURL=http://localhost:PORT/1.1/ in the credentials file. Any OAuth credentials are accepted.
+ *
+ * The followers of the Twitter IDs with a follower list in the graph are served as generated. Other Twitter IDs of the
+ * graph have no followers, and Twitter IDs outside the graph do not exist.
+ *
+ */
+public class FakeTwitterServer {
+
+	public static final int DEFAULT_PORT = 8080;
+	public static final String API_PATH = "/1.1/";
+	public static final String FOLLOWERS_IDS_PATH = API_PATH + "followers/ids.json";
+	public static final String VERIFY_CREDENTIALS_PATH = API_PATH + "account/verify_credentials.json";
+	public static final int DEFAULT_REQUESTS_PER_WINDOW = 15;
+	public static final int DEFAULT_WINDOW_SECONDS = 15 * 60;
+	public static final int DEFAULT_THREAD_COUNT = 8;
+	public static final int DEFAULT_SEED_SET_SIZE = 10;
+	public static final int MAXIMUM_PAGE_SIZE = 5000;
+	public static final long BEGINNING_CURSOR = -1;
+	public static final long NO_MORE_RESULTS = 0;
+	public static final int CACHED_FOLLOWER_LISTS = 64;
+	public static final int HTTP_OK = 200;
+	public static final int HTTP_NOT_FOUND = 404;
+	public static final int HTTP_TOO_MANY_REQUESTS = 429;
+	//API error codes
+	public static final int PAGE_DOES_NOT_EXIST = 34;
+	public static final int RATE_LIMIT_EXCEEDED = 88;
+	public static final String PORT_OPTION = "port=";
+	public static final String REQUESTS_PER_WINDOW_OPTION = "limit=";
+	public static final String WINDOW_SECONDS_OPTION = "window=";
+	public static final String LATENCY_OPTION = "latency=";
+	public static final String THREAD_COUNT_OPTION = "threads=";
+	public static final String SEED_SET_OPTION = "seedset=";
+
+	private static final Pattern ACCESS_TOKEN_PATTERN = Pattern.compile("oauth_token=\"([^\"]*)\"");
+
+	private SyntheticFollowerGraph syntheticFollowerGraph;
+	private int requestsPerWindow;
+	private long windowMillis;
+	private long latencyMillis;
+	private HttpServer httpServer;
+	private ExecutorService executorService;
+	//Rate limit window of every access token seen
+	private Map<String, RateLimitWindow> rateLimitWindows;
+	//Follower lists served lately, so that paging through a large list does not generate it for every page
+	private Map<Integer, long[]> cachedFollowerLists;
+	private AtomicLong requestCount;
+	private AtomicLong rateLimitedRequestCount;
+	private AtomicLong servedTwitterIdCount;
+
+	public static void main(String[] args) {
+
+		List<String> otherArguments = new ArrayList<String>();
+		SyntheticFollowerGraph syntheticFollowerGraph = null;
+		try {
+			syntheticFollowerGraph = SyntheticFollowerGraph.createFromArguments(args, otherArguments);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: FakeTwitterServer <number of edges> [" + PORT_OPTION + "N] [" + REQUESTS_PER_WINDOW_OPTION + "N] [" + WINDOW_SECONDS_OPTION + "N] [" + LATENCY_OPTION + "MILLIS] [" + THREAD_COUNT_OPTION + "N] [" + SEED_SET_OPTION + "FILE] " + SyntheticFollowerGraph.GRAPH_OPTIONS);
+			return;
+		}
+
+		int port = DEFAULT_PORT, requestsPerWindow = DEFAULT_REQUESTS_PER_WINDOW, windowSeconds = DEFAULT_WINDOW_SECONDS, threadCount = DEFAULT_THREAD_COUNT;
+		long latencyMillis = 0;
+		String seedSetFile = null;
+		for (String option : otherArguments) {
+			try {
+				if (option.startsWith(PORT_OPTION)) {
+					port = Integer.parseInt(option.substring(PORT_OPTION.length()));
+				} else if (option.startsWith(REQUESTS_PER_WINDOW_OPTION)) {
+					requestsPerWindow = Integer.parseInt(option.substring(REQUESTS_PER_WINDOW_OPTION.length()));
+				} else if (option.startsWith(WINDOW_SECONDS_OPTION)) {
+					windowSeconds = Integer.parseInt(option.substring(WINDOW_SECONDS_OPTION.length()));
+				} else if (option.startsWith(LATENCY_OPTION)) {
+					latencyMillis = Long.parseLong(option.substring(LATENCY_OPTION.length()));
+				} else if (option.startsWith(THREAD_COUNT_OPTION)) {
+					threadCount = Integer.parseInt(option.substring(THREAD_COUNT_OPTION.length()));
+				} else if (option.startsWith(SEED_SET_OPTION)) {
+					seedSetFile = option.substring(SEED_SET_OPTION.length());
+				} else {
+					System.err.println("Could not parse input parameter " + option);
+				}
+			} catch (NumberFormatException e) {
+				System.err.println("Could not parse input parameter " + option);
+			}
+		}
+
+		try {
+			if (seedSetFile != null) {
+				syntheticFollowerGraph.saveSeedSet(seedSetFile, DEFAULT_SEED_SET_SIZE);
+				System.out.println("Saved the " + DEFAULT_SEED_SET_SIZE + " most followed Twitter IDs in " + seedSetFile);
+			}
+			final FakeTwitterServer fakeTwitterServer = new FakeTwitterServer(syntheticFollowerGraph, port, requestsPerWindow, windowSeconds, latencyMillis, threadCount);
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					fakeTwitterServer.stop();
+				}
+			});
+			fakeTwitterServer.start();
+			System.out.println("Serving " + syntheticFollowerGraph.getNumberOfEdges() + " follower links of " + syntheticFollowerGraph.getNumberOfLists() + " Twitter IDs at http://localhost:" + port + API_PATH + " with " + requestsPerWindow + " requests per " + windowSeconds + " seconds");
+		} catch (IOException e) {
+			System.err.println("IOException thrown while starting the fake Twitter server on port " + port);
+			e.printStackTrace();
+		}
+
+	}
+
+	/**
+	 * @param syntheticFollowerGraph graph whose followers are served
+	 * @param port
+	 * @param requestsPerWindow followers/ids requests allowed per access token in each window
+	 * @param windowSeconds length of the rate limit window
+	 * @param latencyMillis time every response is held back to stand in for the network
+	 * @param threadCount number of requests handled at the same time
+	 * @throws IOException if the port cannot be bound
+	 */
+	public FakeTwitterServer(SyntheticFollowerGraph syntheticFollowerGraph, int port, int requestsPerWindow, int windowSeconds, long latencyMillis, int threadCount) throws IOException {
+
+		this.syntheticFollowerGraph = syntheticFollowerGraph;
+		this.requestsPerWindow = requestsPerWindow;
+		this.windowMillis = windowSeconds * 1000L;
+		this.latencyMillis = latencyMillis;
+		this.rateLimitWindows = new HashMap<String, RateLimitWindow>();
+		this.cachedFollowerLists = new LinkedHashMap<Integer, long[]>(CACHED_FOLLOWER_LISTS, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, long[]> eldest) {
+				return size() > CACHED_FOLLOWER_LISTS;
+			}
+		};
+		this.requestCount = new AtomicLong();
+		this.rateLimitedRequestCount = new AtomicLong();
+		this.servedTwitterIdCount = new AtomicLong();
+
+		this.httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+		this.httpServer.createContext(FOLLOWERS_IDS_PATH, this.new FollowersIdsHandler());
+		this.httpServer.createContext(VERIFY_CREDENTIALS_PATH, this.new VerifyCredentialsHandler());
+		this.httpServer.createContext("/", this.new NotFoundHandler());
+		this.executorService = Executors.newFixedThreadPool(Math.max(threadCount, 1));
+		this.httpServer.setExecutor(this.executorService);
+
+	}
+
+	public void start() {
+		this.httpServer.start();
+	}
+
+	/**
+	 * Stop accepting requests and print what was served
+	 */
+	public void stop() {
+
+		this.httpServer.stop(0);
+		this.executorService.shutdown();
+		System.out.println(Calendar.getInstance().getTime().toString() + " Served " + this.requestCount.get() + " requests with " + this.servedTwitterIdCount.get() + " follower IDs, " + this.rateLimitedRequestCount.get() + " requests rate limited");
+
+	}
+
+	/**
+	 * Take a request from the rate limit window of the access token the request was signed with
+	 * @param httpExchange
+	 * @return window after the request, with -1 remaining requests if the request is over the limit
+	 */
+	private RateLimitWindow takeRequest(HttpExchange httpExchange) {
+
+		String accessToken = "";
+		String authorization = httpExchange.getRequestHeaders().getFirst("Authorization");
+		if (authorization != null) {
+			Matcher accessTokenMatcher = ACCESS_TOKEN_PATTERN.matcher(authorization);
+			if (accessTokenMatcher.find()) {
+				accessToken = accessTokenMatcher.group(1);
+			}
+		}
+
+		synchronized (this.rateLimitWindows) {
+			RateLimitWindow rateLimitWindow = this.rateLimitWindows.get(accessToken);
+			long now = System.currentTimeMillis();
+			if (rateLimitWindow == null || now >= rateLimitWindow.resetTimeMillis) {
+				rateLimitWindow = new RateLimitWindow(this.requestsPerWindow, now + this.windowMillis);
+				this.rateLimitWindows.put(accessToken, rateLimitWindow);
+			}
+			if (rateLimitWindow.remainingRequests == 0) {
+				return new RateLimitWindow(-1, rateLimitWindow.resetTimeMillis);
+			}
+			--rateLimitWindow.remainingRequests;
+			return new RateLimitWindow(rateLimitWindow.remainingRequests, rateLimitWindow.resetTimeMillis);
+		}
+
+	}
+
+	/**
+	 * @param rank
+	 * @return followers of the Twitter ID of the rank, empty if the graph does not list them
+	 */
+	private long[] getFollowers(int rank) {
+
+		if (rank >= this.syntheticFollowerGraph.getNumberOfLists()) {
+			return new long[0];
+		}
+		synchronized (this.cachedFollowerLists) {
+			long[] followerIds = this.cachedFollowerLists.get(rank);
+			if (followerIds != null) {
+				return followerIds;
+			}
+		}
+		TwitterIdBuffer followerIds = new TwitterIdBuffer(this.syntheticFollowerGraph.getListSize(rank));
+		this.syntheticFollowerGraph.getFollowers(rank, followerIds);
+		synchronized (this.cachedFollowerLists) {
+			this.cachedFollowerLists.put(rank, followerIds.toArray());
+			return this.cachedFollowerLists.get(rank);
+		}
+
+	}
+
+	/**
+	 * @param httpExchange
+	 * @return query parameters of the request
+	 */
+	private static Map<String, String> getQueryParameters(HttpExchange httpExchange) {
+
+		Map<String, String> queryParameters = new HashMap<String, String>();
+		String query = httpExchange.getRequestURI().getRawQuery();
+		if (query != null) {
+			for (String queryParameter : query.split("&")) {
+				int separatorIndex = queryParameter.indexOf('=');
+				if (separatorIndex > 0) {
+					try {
+						queryParameters.put(queryParameter.substring(0, separatorIndex), URLDecoder.decode(queryParameter.substring(separatorIndex + 1), "UTF-8"));
+					} catch (IllegalArgumentException e) {
+						//Malformed parameters are left out like missing ones
+					} catch (IOException e) {
+						//UTF-8 is always supported
+					}
+				}
+			}
+		}
+		return queryParameters;
+
+	}
+
+	/**
+	 * @param errorCode
+	 * @param message
+	 * @return response body of an API error
+	 */
+	private static String getErrorBody(int errorCode, String message) {
+		return "{\"errors\":[{\"code\":" + errorCode + ",\"message\":\"" + message + "\"}]}";
+	}
+
+	/**
+	 * Send the response after the configured latency
+	 * @param httpExchange
+	 * @param statusCode
+	 * @param rateLimitWindow rate limit to report in the headers or null
+	 * @param body JSON body
+	 * @throws IOException
+	 */
+	private void sendResponse(HttpExchange httpExchange, int statusCode, RateLimitWindow rateLimitWindow, String body) throws IOException {
+
+		if (this.latencyMillis > 0) {
+			try {
+				Thread.sleep(this.latencyMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		this.requestCount.incrementAndGet();
+		if (rateLimitWindow != null) {
+			httpExchange.getResponseHeaders().set("X-Rate-Limit-Limit", Integer.toString(this.requestsPerWindow));
+			httpExchange.getResponseHeaders().set("X-Rate-Limit-Remaining", Integer.toString(Math.max(rateLimitWindow.remainingRequests, 0)));
+			httpExchange.getResponseHeaders().set("X-Rate-Limit-Reset", Long.toString((rateLimitWindow.resetTimeMillis + 999) / 1000));
+		}
+		byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+		httpExchange.getResponseHeaders().set("Content-Type", "application/json;charset=utf-8");
+		httpExchange.sendResponseHeaders(statusCode, bodyBytes.length);
+		OutputStream responseBody = httpExchange.getResponseBody();
+		try {
+			responseBody.write(bodyBytes);
+		} finally {
+			responseBody.close();
+		}
+
+	}
+
+	/**
+	 * Requests left in a rate limit window and the time the window ends
+	 */
+	private static class RateLimitWindow {
+
+		private int remainingRequests;
+		private long resetTimeMillis;
+
+		public RateLimitWindow(int remainingRequests, long resetTimeMillis) {
+			this.remainingRequests = remainingRequests;
+			this.resetTimeMillis = resetTimeMillis;
+		}
+
+	}
+
+	/**
+	 * Serves one page of follower IDs per request. The cursor is the position of the first ID of the page in the list.
+	 */
+	private class FollowersIdsHandler implements HttpHandler {
+
+		@Override
+		public void handle(HttpExchange httpExchange) throws IOException {
+
+			RateLimitWindow rateLimitWindow = takeRequest(httpExchange);
+			if (rateLimitWindow.remainingRequests < 0) {
+				rateLimitedRequestCount.incrementAndGet();
+				sendResponse(httpExchange, HTTP_TOO_MANY_REQUESTS, rateLimitWindow, getErrorBody(RATE_LIMIT_EXCEEDED, "Rate limit exceeded"));
+				return;
+			}
+
+			Map<String, String> queryParameters = getQueryParameters(httpExchange);
+			int rank = -1, pageSize = MAXIMUM_PAGE_SIZE;
+			long cursor = BEGINNING_CURSOR;
+			try {
+				if (queryParameters.containsKey("user_id")) {
+					rank = syntheticFollowerGraph.getRank(Long.parseLong(queryParameters.get("user_id")));
+				}
+				if (queryParameters.containsKey("cursor")) {
+					cursor = Long.parseLong(queryParameters.get("cursor"));
+				}
+				if (queryParameters.containsKey("count")) {
+					pageSize = Math.max(1, Math.min(Integer.parseInt(queryParameters.get("count")), MAXIMUM_PAGE_SIZE));
+				}
+			} catch (NumberFormatException e) {
+				rank = -1;
+			}
+			if (rank < 0) {
+				sendResponse(httpExchange, HTTP_NOT_FOUND, rateLimitWindow, getErrorBody(PAGE_DOES_NOT_EXIST, "Sorry, that page does not exist."));
+				return;
+			}
+
+			long[] followerIds = getFollowers(rank);
+			int pageStart = (int) Math.min(Math.max(cursor, 0L), followerIds.length);
+			int pageEnd = (int) Math.min((long) pageStart + pageSize, followerIds.length);
+			StringBuilder body = new StringBuilder(32 + (pageEnd - pageStart) * 20);
+			body.append("{\"ids\":[");
+			for (int followerIndex = pageStart; followerIndex < pageEnd; ++followerIndex) {
+				if (followerIndex > pageStart) {
+					body.append(',');
+				}
+				body.append(followerIds[followerIndex]);
+			}
+			long nextCursor = pageEnd < followerIds.length ? pageEnd : NO_MORE_RESULTS;
+			long previousCursor = pageStart > 0 ? -pageStart : NO_MORE_RESULTS;
+			body.append("],\"next_cursor\":").append(nextCursor).append(",\"next_cursor_str\":\"").append(nextCursor);
+			body.append("\",\"previous_cursor\":").append(previousCursor).append(",\"previous_cursor_str\":\"").append(previousCursor).append("\"}");
+			servedTwitterIdCount.addAndGet(pageEnd - pageStart);
+			sendResponse(httpExchange, HTTP_OK, rateLimitWindow, body.toString());
+
+		}
+
+	}
+
+	/**
+	 * Accepts any credentials as those of the most followed Twitter ID
+	 */
+	private class VerifyCredentialsHandler implements HttpHandler {
+
+		@Override
+		public void handle(HttpExchange httpExchange) throws IOException {
+
+			long twitterId = syntheticFollowerGraph.getTwitterId(0);
+			sendResponse(httpExchange, HTTP_OK, null, "{\"id\":" + twitterId + ",\"id_str\":\"" + twitterId + "\",\"name\":\"Synthetic\",\"screen_name\":\"synthetic\",\"followers_count\":" + syntheticFollowerGraph.getListSize(0) + "}");
+
+		}
+
+	}
+
+	private class NotFoundHandler implements HttpHandler {
+
+		@Override
+		public void handle(HttpExchange httpExchange) throws IOException {
+			sendResponse(httpExchange, HTTP_NOT_FOUND, null, getErrorBody(PAGE_DOES_NOT_EXIST, "Sorry, that page does not exist."));
+		}
+
+	}
+
+}
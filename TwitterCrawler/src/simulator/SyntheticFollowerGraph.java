@@ -0,0 +1,349 @@
+package simulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import file.io.BinaryTwitterIdFormat;
+import file.io.FileWriter;
+import file.io.FollowerStorage;
+import file.io.TwitterIdBuffer;
+
+/**
+ * Follower graph with power law degrees, generated from a random seed so that the same parameters always give the same
+ * graph. Twitter IDs are ranked by popularity. The follower lists belong to the most popular Twitter IDs, and the list
+ * of rank r holds a number of followers falling off as (r + 1) to the power of -listSizeExponent. Followers are drawn
+ * from all Twitter IDs with a bias towards the popular ones, so the number of Twitter IDs followed also has a heavy tail.
+ *
+ * Each list is generated on its own from the random seed and its rank, so any list can be produced again without the
+ * others.
+ *
+ * Run on its own it writes the graph to a followers folder, packed into storage segments or with the option text or
+ * binary in a file per Twitter ID, the same as the crawler would.
+ *
+ */
+public class SyntheticFollowerGraph {
+
+	public static final int DEFAULT_AVERAGE_LIST_SIZE = 100;
+	public static final int DEFAULT_EDGES_PER_TWITTER_ID = 5;
+	public static final double DEFAULT_LIST_SIZE_EXPONENT = 0.8;
+	public static final double DEFAULT_FOLLOWER_SKEW = 2.0;
+	public static final int LISTS_PER_FLUSH = 1024;
+	public static final long DEFAULT_RANDOM_SEED = 20160507L;
+	public static final String RANDOM_SEED_OPTION = "seed=";
+	public static final String LISTS_OPTION = "lists=";
+	public static final String TWITTER_IDS_OPTION = "ids=";
+	public static final String LIST_SIZE_EXPONENT_OPTION = "exponent=";
+	public static final String FOLLOWER_SKEW_OPTION = "skew=";
+	public static final String BINARY_FORMAT_OPTION = "binary";
+	public static final String TEXT_FORMAT_OPTION = "text";
+	public static final String GRAPH_OPTIONS = "[" + RANDOM_SEED_OPTION + "N] [" + LISTS_OPTION + "N] [" + TWITTER_IDS_OPTION + "N] [" + LIST_SIZE_EXPONENT_OPTION + "X] [" + FOLLOWER_SKEW_OPTION + "X]";
+
+	//Odd multiplier spreading the ranks over the positive longs the way real Twitter IDs are spread, and its inverse
+	private static final long TWITTER_ID_MULTIPLIER = 0x9E3779B97F4A7C15L;
+	private static final long TWITTER_ID_INVERSE = 0xF1DE83E19937733DL;
+
+	private int numberOfTwitterIds;
+	private int[] listSizes;
+	private long numberOfEdges;
+	private double followerSkew;
+	private long randomSeed;
+
+	public static void main(String[] args) {
+
+		List<String> otherArguments = new ArrayList<String>();
+		SyntheticFollowerGraph syntheticFollowerGraph = null;
+		try {
+			syntheticFollowerGraph = createFromArguments(args, otherArguments);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+		}
+		if (syntheticFollowerGraph == null || otherArguments.isEmpty()) {
+			System.err.println("Usage: SyntheticFollowerGraph <number of edges> <followers folder> [" + TEXT_FORMAT_OPTION + "|" + BINARY_FORMAT_OPTION + "] " + GRAPH_OPTIONS);
+			return;
+		}
+
+		String followersFolder = otherArguments.get(0);
+		String separateFileExtension = null;
+		for (String option : otherArguments.subList(1, otherArguments.size())) {
+			if (BINARY_FORMAT_OPTION.equalsIgnoreCase(option)) {
+				separateFileExtension = BinaryTwitterIdFormat.FILE_EXTENSION;
+			} else if (TEXT_FORMAT_OPTION.equalsIgnoreCase(option)) {
+				separateFileExtension = FollowerStorage.TEXT_FILE_EXTENSION;
+			} else {
+				System.err.println("Could not parse input parameter " + option);
+			}
+		}
+
+		try {
+			if (separateFileExtension == null) {
+				FollowerStorage followerStorage = new FollowerStorage(followersFolder);
+				try {
+					syntheticFollowerGraph.save(followerStorage);
+				} finally {
+					followerStorage.close();
+				}
+			} else {
+				syntheticFollowerGraph.saveSeparateFiles(followersFolder, separateFileExtension);
+			}
+			System.out.println("Saved " + syntheticFollowerGraph.getNumberOfEdges() + " follower links of " + syntheticFollowerGraph.getNumberOfLists() + " Twitter IDs in " + followersFolder);
+		} catch (IOException e) {
+			System.err.println("IOException thrown while saving the synthetic follower graph in " + followersFolder);
+			e.printStackTrace();
+		}
+
+	}
+
+	/**
+	 * Create the graph from command line arguments, the number of edges followed by the graph options in any order
+	 * @param args
+	 * @param otherArguments receives the arguments after the number of edges that are not graph options
+	 * @return
+	 * @throws IllegalArgumentException if an argument cannot be parsed or the graph cannot be created
+	 */
+	public static SyntheticFollowerGraph createFromArguments(String[] args, List<String> otherArguments) {
+
+		if (args.length == 0) {
+			throw new IllegalArgumentException("Number of edges missing");
+		}
+		long numberOfEdges = Long.parseLong(args[0].trim());
+		long randomSeed = DEFAULT_RANDOM_SEED;
+		int numberOfLists = (int) Math.max(1L, numberOfEdges / DEFAULT_AVERAGE_LIST_SIZE);
+		int numberOfTwitterIds = (int) Math.max(2L, numberOfEdges / DEFAULT_EDGES_PER_TWITTER_ID);
+		double listSizeExponent = DEFAULT_LIST_SIZE_EXPONENT;
+		double followerSkew = DEFAULT_FOLLOWER_SKEW;
+
+		for (int argumentIndex = 1; argumentIndex < args.length; ++argumentIndex) {
+			String option = args[argumentIndex].trim();
+			if (option.startsWith(RANDOM_SEED_OPTION)) {
+				randomSeed = Long.parseLong(option.substring(RANDOM_SEED_OPTION.length()));
+			} else if (option.startsWith(LISTS_OPTION)) {
+				numberOfLists = Integer.parseInt(option.substring(LISTS_OPTION.length()));
+			} else if (option.startsWith(TWITTER_IDS_OPTION)) {
+				numberOfTwitterIds = Integer.parseInt(option.substring(TWITTER_IDS_OPTION.length()));
+			} else if (option.startsWith(LIST_SIZE_EXPONENT_OPTION)) {
+				listSizeExponent = Double.parseDouble(option.substring(LIST_SIZE_EXPONENT_OPTION.length()));
+			} else if (option.startsWith(FOLLOWER_SKEW_OPTION)) {
+				followerSkew = Double.parseDouble(option.substring(FOLLOWER_SKEW_OPTION.length()));
+			} else if (option.length() > 0) {
+				otherArguments.add(option);
+			}
+		}
+
+		return new SyntheticFollowerGraph(numberOfEdges, numberOfLists, numberOfTwitterIds, listSizeExponent, followerSkew, randomSeed);
+
+	}
+
+	/**
+	 * Create a graph with the default shape
+	 * @param numberOfEdges number of follower links
+	 * @param randomSeed
+	 */
+	public SyntheticFollowerGraph(long numberOfEdges, long randomSeed) {
+
+		this(numberOfEdges, (int) Math.max(1L, numberOfEdges / DEFAULT_AVERAGE_LIST_SIZE), (int) Math.max(2L, numberOfEdges / DEFAULT_EDGES_PER_TWITTER_ID), DEFAULT_LIST_SIZE_EXPONENT, DEFAULT_FOLLOWER_SKEW, randomSeed);
+
+	}
+
+	/**
+	 * @param numberOfEdges number of follower links
+	 * @param numberOfLists number of Twitter IDs whose followers are listed
+	 * @param numberOfTwitterIds number of Twitter IDs in the graph
+	 * @param listSizeExponent exponent of the power law followed by the list sizes
+	 * @param followerSkew bias of followers towards popular Twitter IDs, 1 to draw them uniformly
+	 * @param randomSeed
+	 * @throws IllegalArgumentException if the lists cannot hold the follower links
+	 */
+	public SyntheticFollowerGraph(long numberOfEdges, int numberOfLists, int numberOfTwitterIds, double listSizeExponent, double followerSkew, long randomSeed) {
+
+		if (numberOfLists < 1 || numberOfTwitterIds < 2 || numberOfLists > numberOfTwitterIds) {
+			throw new IllegalArgumentException("Cannot list the followers of " + numberOfLists + " of " + numberOfTwitterIds + " Twitter IDs");
+		}
+		//Keep every list to half of the Twitter IDs so that drawing distinct followers stays quick
+		int maximumListSize = numberOfTwitterIds / 2;
+		if (numberOfEdges > (long) numberOfLists * maximumListSize) {
+			throw new IllegalArgumentException(numberOfEdges + " follower links do not fit in " + numberOfLists + " lists of at most " + maximumListSize + " followers");
+		}
+
+		this.numberOfTwitterIds = numberOfTwitterIds;
+		this.followerSkew = followerSkew;
+		this.randomSeed = randomSeed;
+		this.listSizes = getListSizes(numberOfEdges, numberOfLists, maximumListSize, listSizeExponent);
+		this.numberOfEdges = 0;
+		for (int listSize : this.listSizes) {
+			this.numberOfEdges += listSize;
+		}
+
+	}
+
+	/**
+	 * Share the follower links out by the power law, giving any links lost to rounding or to full lists to the most
+	 * popular lists with room left
+	 * @param numberOfEdges
+	 * @param numberOfLists
+	 * @param maximumListSize
+	 * @param listSizeExponent
+	 * @return
+	 */
+	private static int[] getListSizes(long numberOfEdges, int numberOfLists, int maximumListSize, double listSizeExponent) {
+
+		double weightTotal = 0.0;
+		for (int listRank = 0; listRank < numberOfLists; ++listRank) {
+			weightTotal += Math.pow(listRank + 1, -listSizeExponent);
+		}
+
+		int[] listSizes = new int[numberOfLists];
+		long edgesLeft = numberOfEdges;
+		for (int listRank = 0; listRank < numberOfLists; ++listRank) {
+			long listSize = (long) (numberOfEdges * Math.pow(listRank + 1, -listSizeExponent) / weightTotal);
+			listSizes[listRank] = (int) Math.max(1L, Math.min(listSize, maximumListSize));
+			edgesLeft -= listSizes[listRank];
+		}
+		for (int listRank = 0; listRank < numberOfLists && edgesLeft > 0; ++listRank) {
+			int addedEdges = (int) Math.min(edgesLeft, maximumListSize - listSizes[listRank]);
+			listSizes[listRank] += addedEdges;
+			edgesLeft -= addedEdges;
+		}
+		return listSizes;
+
+	}
+
+	/**
+	 * Generate the followers of one list
+	 * @param listRank
+	 * @param followerIds receives the Twitter IDs of the followers
+	 */
+	public void getFollowers(int listRank, TwitterIdBuffer followerIds) {
+
+		Random random = new Random(this.randomSeed ^ (listRank * TWITTER_ID_MULTIPLIER));
+		int listSize = this.listSizes[listRank];
+		int[] followerRanks = new int[listSize];
+		int numberOfFollowers = 0;
+
+		//Draw followers until there are enough distinct ones, a Twitter ID never following itself
+		while (numberOfFollowers < listSize) {
+			for (int followerIndex = numberOfFollowers; followerIndex < listSize; ++followerIndex) {
+				do {
+					followerRanks[followerIndex] = (int) (this.numberOfTwitterIds * Math.pow(random.nextDouble(), this.followerSkew));
+				} while (followerRanks[followerIndex] == listRank);
+			}
+			Arrays.sort(followerRanks);
+			numberOfFollowers = 0;
+			for (int followerIndex = 0; followerIndex < listSize; ++followerIndex) {
+				if (followerIndex == 0 || followerRanks[followerIndex] != followerRanks[followerIndex - 1]) {
+					followerRanks[numberOfFollowers++] = followerRanks[followerIndex];
+				}
+			}
+		}
+
+		for (int followerIndex = 0; followerIndex < listSize; ++followerIndex) {
+			followerIds.add(getTwitterId(followerRanks[followerIndex]));
+		}
+
+	}
+
+	/**
+	 * Append every follower list to the storage
+	 * @param followerStorage
+	 * @throws IOException
+	 */
+	public void save(FollowerStorage followerStorage) throws IOException {
+
+		TwitterIdBuffer followerIds = new TwitterIdBuffer();
+		for (int listRank = 0; listRank < this.listSizes.length; ++listRank) {
+			followerIds.clear();
+			getFollowers(listRank, followerIds);
+			followerStorage.append(getTwitterId(listRank), followerIds);
+			if ((listRank + 1) % LISTS_PER_FLUSH == 0) {
+				followerStorage.flush();
+			}
+		}
+		followerStorage.flush();
+
+	}
+
+	/**
+	 * Save every follower list in a file of its own named after the Twitter ID
+	 * @param followersFolder
+	 * @param fileExtension FollowerStorage.TEXT_FILE_EXTENSION for text files or BinaryTwitterIdFormat.FILE_EXTENSION
+	 * @throws IOException
+	 */
+	public void saveSeparateFiles(String followersFolder, String fileExtension) throws IOException {
+
+		if (!new File(followersFolder).isDirectory() && !new File(followersFolder).mkdirs()) {
+			throw new IOException("Could not create followers folder " + followersFolder);
+		}
+		FileWriter fileWriter = new FileWriter();
+		TwitterIdBuffer followerIds = new TwitterIdBuffer();
+		for (int listRank = 0; listRank < this.listSizes.length; ++listRank) {
+			followerIds.clear();
+			getFollowers(listRank, followerIds);
+			String fileName = new File(followersFolder, getTwitterId(listRank) + fileExtension).getPath();
+			if (BinaryTwitterIdFormat.FILE_EXTENSION.equals(fileExtension)) {
+				fileWriter.saveTwitterIds(fileName, followerIds);
+			} else {
+				fileWriter.saveTwitterIdsText(fileName, followerIds);
+			}
+		}
+
+	}
+
+	/**
+	 * Save the most popular Twitter IDs in the format of the crawler seed set
+	 * @param seedSetFile
+	 * @param numberOfSeeds
+	 * @throws IOException
+	 */
+	public void saveSeedSet(String seedSetFile, int numberOfSeeds) throws IOException {
+
+		TwitterIdBuffer seedTwitterIds = new TwitterIdBuffer(numberOfSeeds);
+		for (int rank = 0; rank < Math.min(numberOfSeeds, this.numberOfTwitterIds); ++rank) {
+			seedTwitterIds.add(getTwitterId(rank));
+		}
+		new FileWriter().saveTwitterIdsText(seedSetFile, seedTwitterIds);
+
+	}
+
+	/**
+	 * @param rank popularity rank of the Twitter ID, 0 for the most popular
+	 * @return Twitter ID of the rank, every rank getting a different positive ID
+	 */
+	public long getTwitterId(int rank) {
+		return ((rank + 1L) * TWITTER_ID_MULTIPLIER) & Long.MAX_VALUE;
+	}
+
+	/**
+	 * @param twitterId
+	 * @return popularity rank of the Twitter ID or -1 if it is not in the graph
+	 */
+	public int getRank(long twitterId) {
+		long rank = ((twitterId * TWITTER_ID_INVERSE) & Long.MAX_VALUE) - 1;
+		return twitterId > 0 && rank < this.numberOfTwitterIds ? (int) rank : -1;
+	}
+
+	/**
+	 * @return number of Twitter IDs whose followers are listed
+	 */
+	public int getNumberOfLists() {
+		return this.listSizes.length;
+	}
+
+	public int getListSize(int listRank) {
+		return this.listSizes[listRank];
+	}
+
+	public int getNumberOfTwitterIds() {
+		return this.numberOfTwitterIds;
+	}
+
+	/**
+	 * @return number of follower links in all lists
+	 */
+	public long getNumberOfEdges() {
+		return this.numberOfEdges;
+	}
+
+}